@@ -1,6 +1,6 @@
 import {ref, type Ref, watch} from 'vue';
 import {fetchUsers} from '../services/UserService';
-import type {Page, User} from '../types';
+import type {Page, User, UserChangeMessage} from '../types';
 
 export function useUsers() {
     const usersPage: Ref<Page<User>> = ref({
@@ -51,6 +51,38 @@ export function useUsers() {
         }
     }
 
+    // Patch the current page from a change broadcast; returns false when only a reload can get it right
+    function applyChanges(message: UserChangeMessage): boolean {
+        // Whether a changed user matches the search is for the server to decide
+        if (searchTerm.value || !message.changes) return false;
+
+        const page = usersPage.value;
+        const content = page.content;
+        const lastId = content.length > 0 ? Number(content[content.length - 1].id) : null;
+        let total = page.totalElements;
+
+        for (const change of message.changes) {
+            if (change.event === 'EDIT') {
+                const index = content.findIndex((u) => Number(u.id) === change.id);
+                if (index >= 0 && change.user) content[index] = change.user;
+            } else if (change.event === 'ADD') {
+                // Rows come back in id order and new ids are the highest, so a full page is unaffected
+                if (content.length < itemsPerPage.value) return false;
+                total++;
+            } else if (change.event === 'DELETE') {
+                // Deleting a row on or before this page shifts it
+                if (lastId === null || change.id <= lastId) return false;
+                total--;
+            } else {
+                return false;
+            }
+        }
+
+        page.totalElements = total;
+        page.totalPages = Math.max(1, Math.ceil(total / itemsPerPage.value));
+        return true;
+    }
+
     // Search / pagination watchers
     watch(searchTerm, () => {
         currentPage.value = 0;
@@ -109,6 +141,7 @@ export function useUsers() {
         errorMessage,
         toastMessage,
         loadUsers,
+        applyChanges,
         nextPage,
         prevPage,
         isModalOpen,
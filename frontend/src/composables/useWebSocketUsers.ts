@@ -2,9 +2,15 @@ import {onBeforeUnmount, onMounted} from 'vue';
 import {Client, type IMessage} from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
 import {UserEventType} from '../events';
+import type {UserChangeMessage} from '../types';
 
-export function useWebSocketUsers(onUsersChanged: () => Promise<void> | void) {
+// onChanges may patch the view from the message itself; returning false falls back to onUsersChanged
+export function useWebSocketUsers(
+    onUsersChanged: () => Promise<void> | void,
+    onChanges?: (message: UserChangeMessage) => boolean,
+) {
     let stompClient: Client | null = null;
+    let lastVersion: number | null = null;
 
     const ALLOWED_EVENTS = new Set<string>(Object.values(UserEventType).map(String));
 
@@ -36,11 +42,27 @@ export function useWebSocketUsers(onUsersChanged: () => Promise<void> | void) {
         return null;
     }
 
+    // Patching is only safe when no broadcast was missed, so any gap in versions forces a reload
+    function tryPatch(body: string): boolean {
+        let message: UserChangeMessage;
+        try {
+            message = JSON.parse(body);
+        } catch {
+            return false;
+        }
+        if (typeof message?.version !== 'number' || typeof message.fromVersion !== 'number') return false;
+
+        const inSequence = lastVersion !== null && message.fromVersion === lastVersion + 1;
+        lastVersion = message.version;
+        return inSequence && !!message.changes && !!onChanges && onChanges(message);
+    }
+
     function connect(): void {
         stompClient = new Client({
             webSocketFactory: () => new SockJS('http://localhost:8080/ws') as unknown as IStompSocket,
             reconnectDelay: 5000,
             onConnect: () => {
+                lastVersion = null;
                 stompClient?.subscribe('/topic/users', async (message: IMessage) => {
                     const event = extractEvent(message.body);
                     if (import.meta.env.DEV) {
@@ -48,6 +70,8 @@ export function useWebSocketUsers(onUsersChanged: () => Promise<void> | void) {
                         console.debug('[WS] /topic/users message:', {raw: message.body, event});
                     }
 
+                    if (tryPatch(message.body)) return;
+
                     // If event matches our known events OR we’re unsure, reload.
                     // Safer default: reload on any message on this topic.
                     if (!event || ALLOWED_EVENTS.has(event)) {
@@ -11,4 +11,21 @@ export interface Page<T> {
     totalPages: number;
     totalElements: number;
     number: number; // current page index (0-based)
-}
\ No newline at end of file
+}
+
+// One change in a /topic/users broadcast; user is present for ADD and EDIT
+export interface UserChange {
+    event: string;
+    id: number;
+    version: number;
+    user?: User;
+}
+
+// A /topic/users broadcast covering versions fromVersion..version; changes is omitted for large batches
+export interface UserChangeMessage {
+    event: string;
+    count: number;
+    fromVersion?: number;
+    version?: number;
+    changes?: UserChange[];
+}
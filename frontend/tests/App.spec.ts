@@ -112,6 +112,28 @@ describe('App.vue', () => {
         expect(wrapper.html()).toContain('Alice');
     });
 
+    it('patches the page from an in-sequence change without reloading', async () => {
+        const {__getLastClient} = await import('@stomp/stompjs');
+
+        const wrapper = mount(App);
+        await flushPromises();
+
+        const client: any = __getLastClient();
+        const alicia = {id: 1, name: 'Alicia', email: 'alice@example.com', telephone: '123', address: 'Main St'};
+
+        // First broadcast after connecting has nothing to line up with, so it reloads
+        client.__emit('/topic/users', {event: 'EDIT', count: 1, fromVersion: 4, version: 4,
+            changes: [{event: 'EDIT', id: 1, version: 4, user: alicia}]});
+        await flushPromises();
+        expect(global.fetch).toHaveBeenCalledTimes(2);
+
+        client.__emit('/topic/users', {event: 'EDIT', count: 1, fromVersion: 5, version: 5,
+            changes: [{event: 'EDIT', id: 1, version: 5, user: alicia}]});
+        await flushPromises();
+        expect(global.fetch).toHaveBeenCalledTimes(2);
+        expect(wrapper.html()).toContain('Alicia');
+    });
+
     it('opens delete confirm and performs DELETE then refreshes', async () => {
         // Fallback for apps that use native window.confirm instead of a modal
         const confirmSpy = vi.spyOn(window, 'confirm').mockReturnValue(true);
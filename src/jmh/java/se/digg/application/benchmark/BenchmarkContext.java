@@ -0,0 +1,69 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.digg.application.Application;
+import se.digg.application.service.UserIndexRebuilder;
+
+/**
+ * Boots the application for a benchmark trial against its own in-memory H2 database, seeded with a fixed
+ * number of rows from a fixed seed so runs are comparable. Extra properties override the defaults; an empty
+ * value drops the default instead, e.g. {@code spring.datasource.url=} to use the one from a profile.
+ * <p>
+ * Returns once the in-memory search indexes are built too, so measurements never hit the database fallbacks.
+ */
+final class BenchmarkContext
+{
+	private BenchmarkContext()
+	{
+	}
+
+	static ConfigurableApplicationContext start(int rows, String... extraProperties)
+	{
+		return start(new Class<?>[0], rows, extraProperties);
+	}
+
+	static ConfigurableApplicationContext start(Class<?>[] extraSources, int rows, String... extraProperties)
+	{
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("server.port", "0");
+		properties.put("spring.datasource.url", "jdbc:h2:mem:bench-" + rows + "-" + System.nanoTime());
+		properties.put("digg.mock-data.count", rows);
+		properties.put("digg.mock-data.seed", "42");
+		// Per-statement SQL logging would dominate every measurement
+		properties.put("spring.jpa.show-sql", "false");
+		properties.put("logging.level.root", "WARN");
+		properties.put("logging.level.org.hibernate.SQL", "WARN");
+		properties.put("logging.level.org.hibernate.orm.jdbc.bind", "WARN");
+		properties.put("logging.file.name", "");
+		properties.put("spring.main.banner-mode", "off");
+		for (String property : extraProperties)
+		{
+			int eq = property.indexOf('=');
+			if (eq == property.length() - 1)
+			{
+				properties.remove(property.substring(0, eq));
+			}
+			else
+			{
+				properties.put(property.substring(0, eq), property.substring(eq + 1));
+			}
+		}
+		// Passed as command line arguments so they override application.properties
+		String[] args = properties.entrySet().stream()
+			.map(e -> "--" + e.getKey() + "=" + e.getValue())
+			.toArray(String[]::new);
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).sources(extraSources).run(args);
+		context.getBean(UserIndexRebuilder.class).rebuilt().join();
+		return context;
+	}
+}
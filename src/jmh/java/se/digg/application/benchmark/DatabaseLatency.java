@@ -0,0 +1,71 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Makes every connection checkout block for {@code bench.db.latency}, standing in for the network round
+ * trip to a real database that in-memory H2 does not have. The connection is held while sleeping, like a
+ * thread waiting on a remote query.
+ */
+@Configuration
+class DatabaseLatency
+{
+	@Bean
+	static BeanPostProcessor databaseLatencyPostProcessor(@Value("${bench.db.latency:0ms}") Duration latency)
+	{
+		return new BeanPostProcessor()
+		{
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName)
+			{
+				if (bean instanceof DataSource dataSource && !latency.isZero())
+				{
+					return new SlowDataSource(dataSource, latency);
+				}
+				return bean;
+			}
+		};
+	}
+
+	private static final class SlowDataSource extends DelegatingDataSource
+	{
+		private final Duration latency;
+
+		SlowDataSource(DataSource target, Duration latency)
+		{
+			super(target);
+			this.latency = latency;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException
+		{
+			Connection connection = super.getConnection();
+			try
+			{
+				TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return connection;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import se.digg.application.util.DeduplicationFilter;
+
+/**
+ * Per-call cost of {@link DeduplicationFilter#decide} during an error storm: 8 threads logging the same
+ * few exceptions over and over, which the filter denies. {@code traces} is how many distinct stack traces
+ * are in rotation; {@code frames} roughly how deep they are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class DeduplicationFilterBenchmark
+{
+	@Param({"1", "16"})
+	int traces;
+
+	@Param({"20", "100"})
+	int frames;
+
+	private LoggerContext context;
+	private DeduplicationFilter filter;
+	private Logger logger;
+	private Throwable[] throwables;
+
+	@Setup
+	public void setUp()
+	{
+		context = new LoggerContext();
+		logger = context.getLogger("bench");
+		logger.setLevel(Level.INFO);
+		filter = new DeduplicationFilter();
+		filter.setContext(context);
+		filter.start();
+
+		throwables = new Throwable[traces];
+		for (int i = 0; i < traces; i++)
+		{
+			throwables[i] = failAt(frames + i);
+			// First sight is let through; everything measured afterwards is a repeat
+			filter.decide(DeduplicationFilter.DEDUPLICATE, logger, Level.ERROR, "Request failed", null, throwables[i]);
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		filter.stop();
+		context.stop();
+	}
+
+	@Benchmark
+	public FilterReply repeat()
+	{
+		Throwable throwable = throwables[ThreadLocalRandom.current().nextInt(traces)];
+		return filter.decide(DeduplicationFilter.DEDUPLICATE, logger, Level.ERROR, "Request failed", null, throwable);
+	}
+
+	// Traces differ in depth, so each one hashes differently
+	private static Throwable failAt(int depth)
+	{
+		if (depth > 1)
+		{
+			return failAt(depth - 1);
+		}
+		return new IllegalStateException("failed");
+	}
+}
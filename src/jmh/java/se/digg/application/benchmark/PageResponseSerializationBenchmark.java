@@ -0,0 +1,67 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import se.digg.application.api.PageResponse;
+import se.digg.application.model.User;
+
+/**
+ * Jackson serialization of a {@link PageResponse} page, without the database, so mapper or DTO changes
+ * can be measured on their own. The mapper is built the way Spring Boot builds its default one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageResponseSerializationBenchmark
+{
+	@Param({"10", "100", "1000"})
+	int pageSize;
+
+	private ObjectMapper objectMapper;
+	private PageResponse<User> page;
+
+	@Setup
+	public void setUp()
+	{
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		List<User> users = new ArrayList<>(pageSize);
+		for (long i = 1; i <= pageSize; i++)
+		{
+			users.add(new User(i, "Användare " + i, "Storgatan " + i + ", 12345 Staden", "user" + i + "@example.se", "070-" + (1000000 + i)));
+		}
+		page = PageResponse.fromPage(new PageImpl<>(users, PageRequest.of(0, pageSize), 100_000));
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException
+	{
+		return objectMapper.writeValueAsBytes(page);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import se.digg.application.service.UserService;
+
+/**
+ * Time from nothing to a running application ({@code coldStart}), and of the first queries afterwards
+ * ({@code firstQuery}), with {@code rows} users in memory or in the file of the {@code persistent} profile.
+ * <p>
+ * In memory every start seeds the table again; from a file it is seeded once per trial and every start opens
+ * the existing database. Both include building the in-memory search indexes, which runs in parallel after the
+ * application reports ready. The operating system's file cache stays warm between starts, so the file numbers
+ * are for a process restart rather than a machine reboot:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="Startup -p rows=100000"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class StartupBenchmark
+{
+	private static final int PAGE_SIZE = 20;
+
+	@Param({"mem", "file"})
+	String storage;
+
+	@Param({"100000", "1000000"})
+	int rows;
+
+	private Path directory;
+	private ConfigurableApplicationContext context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		if (storage.equals("file"))
+		{
+			directory = Files.createTempDirectory("digg-startup");
+			start().close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		if (directory != null)
+		{
+			try (Stream<Path> files = Files.walk(directory))
+			{
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+				{
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void close()
+	{
+		if (context != null)
+		{
+			context.close();
+			context = null;
+		}
+	}
+
+	@Benchmark
+	public ConfigurableApplicationContext coldStart()
+	{
+		context = start();
+		return context;
+	}
+
+	@Benchmark
+	public Object firstQuery(Started started)
+	{
+		UserService userService = started.context.getBean(UserService.class);
+		// A page from the middle of the table, then one user by id; neither is cached yet
+		var page = userService.getUsers(PageRequest.of(rows / PAGE_SIZE / 2, PAGE_SIZE));
+		return userService.getUserById(page.getContent().get(0).getId());
+	}
+
+	ConfigurableApplicationContext start()
+	{
+		if (storage.equals("mem"))
+		{
+			return BenchmarkContext.start(rows);
+		}
+		return BenchmarkContext.start(rows,
+			"spring.profiles.active=persistent",
+			"spring.datasource.url=",
+			"digg.storage.path=" + directory.resolve("diggdb"));
+	}
+
+	/**
+	 * A freshly started application per {@code firstQuery} invocation, started outside the measurement.
+	 */
+	@State(Scope.Benchmark)
+	public static class Started
+	{
+		private ConfigurableApplicationContext context;
+
+		@Setup(Level.Invocation)
+		public void start(StartupBenchmark benchmark)
+		{
+			context = benchmark.start();
+		}
+
+		@TearDown(Level.Invocation)
+		public void close()
+		{
+			context.close();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Paged list requests over HTTP from 64 concurrent clients while every database access blocks for
+ * {@code dbLatency}, once on Tomcat's platform-thread pool and once on virtual threads. Compare the
+ * throughput and the p0.99 line of the sample-time results.
+ * <p>
+ * Tomcat is capped at 32 platform threads and the connection pool at 64, so in platform mode the request
+ * threads are what runs out. The virtual mode needs Java 21:
+ * {@code mvn -Pbenchmark,java21 test-compile exec:exec -Djmh.args=Threading}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(64)
+@Fork(1)
+public class ThreadingBenchmark
+{
+	private static final int ROWS = 10_000;
+	private static final int PAGE_SIZE = 20;
+
+	@Param({"platform", "virtual"})
+	String threading;
+
+	@Param({"5ms"})
+	String dbLatency;
+
+	private ConfigurableApplicationContext context;
+	private HttpClient client;
+	private String baseUrl;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		boolean virtual = "virtual".equals(threading);
+		if (virtual && Runtime.version().feature() < 21)
+		{
+			throw new IllegalStateException("Virtual threads need Java 21, run with -Pjava21 on a JDK 21");
+		}
+		context = BenchmarkContext.start(new Class<?>[] {DatabaseLatency.class}, ROWS,
+			"spring.threads.virtual.enabled=" + virtual,
+			"server.tomcat.threads.max=32",
+			"spring.datasource.hikari.maximum-pool-size=64",
+			"bench.db.latency=" + dbLatency);
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		baseUrl = "http://localhost:" + port + "/digg/user/";
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		context.close();
+	}
+
+	@Benchmark
+	public int pagedList() throws IOException, InterruptedException
+	{
+		int page = ThreadLocalRandom.current().nextInt(ROWS / PAGE_SIZE);
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + page + "/" + PAGE_SIZE)).GET().build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import se.digg.application.api.Suggestion;
+import se.digg.application.model.User;
+import se.digg.application.service.UserService;
+
+/**
+ * Service-level hot paths against H2 seeded with {@code rows} users.
+ * <p>
+ * {@code createUser} grows the table for the rest of the trial, so compare it between runs of the same
+ * length rather than against the read benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark
+{
+	private static final int PAGE_SIZE = 20;
+	private static final String[] QUERIES = {"and", "ers", "gatan", "acme", "an"};
+	private static final String[] PREFIXES = {"a", "an", "and", "kar", "s"};
+
+	@Param({"1000", "10000", "100000"})
+	int rows;
+
+	private ConfigurableApplicationContext context;
+	private UserService userService;
+	private long[] ids;
+	private final AtomicLong created = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		context = BenchmarkContext.start(rows);
+		userService = context.getBean(UserService.class);
+		List<Long> collected = new ArrayList<>(rows);
+		userService.exportUsers(user -> collected.add(user.getId()));
+		ids = collected.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		context.close();
+	}
+
+	@Benchmark
+	public Page<User> getUsers()
+	{
+		int pages = Math.max(1, rows / PAGE_SIZE);
+		return userService.getUsers(PageRequest.of(ThreadLocalRandom.current().nextInt(pages), PAGE_SIZE));
+	}
+
+	@Benchmark
+	public Page<User> queryUsers()
+	{
+		String query = QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)];
+		return userService.queryUsers(query, PageRequest.of(0, PAGE_SIZE));
+	}
+
+	@Benchmark
+	public List<Suggestion> suggestUsers()
+	{
+		return userService.suggestUsers(PREFIXES[ThreadLocalRandom.current().nextInt(PREFIXES.length)], 10);
+	}
+
+	@Benchmark
+	public Object getUserById()
+	{
+		return userService.getUserById(randomId());
+	}
+
+	@Benchmark
+	public User createUser()
+	{
+		long n = created.incrementAndGet();
+		return userService.createUser(new User("Bench Mark " + n, "Benchgatan " + n, "bench" + n + "@bench.se", "070-" + n));
+	}
+
+	@Benchmark
+	public Object updateUser()
+	{
+		long id = randomId();
+		long n = ThreadLocalRandom.current().nextLong();
+		return userService.updateUser(id, new User(id, "Bench Mark " + n, "Benchgatan " + n, "bench.upd" + id + "@bench.se", "070-" + n));
+	}
+
+	private long randomId()
+	{
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+}
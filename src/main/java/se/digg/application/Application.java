@@ -44,8 +44,7 @@ public class Application
 
 		eventPublisher = ctx;
 		markApplicationReady();
-
-		registerGracefulShutdownHook(ctx);
+		// Readiness goes back to refusing traffic on shutdown, see ShutdownDelay
 	}
 
 	private static void markApplicationReady()
@@ -53,30 +52,4 @@ public class Application
 		AvailabilityChangeEvent.publish(eventPublisher, new Object(), ReadinessState.ACCEPTING_TRAFFIC);
 		log.info("Application is now ready to accept traffic");
 	}
-
-	private static void registerGracefulShutdownHook(ConfigurableApplicationContext context)
-	{
-		Runtime.getRuntime().addShutdownHook(new Thread(() ->
-		{
-			log.debug("Starting graceful shutdown process...");
-
-			// Mark application as not ready
-			AvailabilityChangeEvent.publish(eventPublisher, new Object(), ReadinessState.REFUSING_TRAFFIC);
-			log.debug("Application is now refusing traffic");
-
-			// Allow time for load balancer to detect the change
-			try
-			{
-				Thread.sleep(5000);
-			}
-			catch (InterruptedException e)
-			{
-				Thread.currentThread().interrupt();
-				log.warn("Shutdown wait interrupted", e);
-			}
-
-			context.close();
-			log.info("Spring Boot application has been stopped - shutdown process finished!");
-		}));
-	}
 }
@@ -0,0 +1,32 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Outcome of a bulk delete. Ids are deleted in one statement, so only the totals are known.
+ */
+@Getter
+@Setter
+public class BulkDeleteResponse
+{
+	private int requested;
+	private int deleted;
+
+	public BulkDeleteResponse()
+	{
+	}
+
+	public BulkDeleteResponse(int requested, int deleted)
+	{
+		this.requested = requested;
+		this.deleted = deleted;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Outcome for one element of a bulk request, identified by its position in the request array.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult
+{
+	public enum Status
+	{
+		CREATED,
+		INVALID,
+		DUPLICATE,
+		;
+	}
+
+	private int index;
+	private Status status;
+	private Long id;
+	private List<String> errors;
+
+	public BulkItemResult()
+	{
+	}
+
+	public BulkItemResult(int index, Status status, Long id, List<String> errors)
+	{
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.errors = errors;
+	}
+
+	public static BulkItemResult created(int index, Long id)
+	{
+		return new BulkItemResult(index, Status.CREATED, id, null);
+	}
+
+	public static BulkItemResult rejected(int index, Status status, List<String> errors)
+	{
+		return new BulkItemResult(index, status, null, errors);
+	}
+}
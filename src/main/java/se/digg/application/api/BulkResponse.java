@@ -0,0 +1,38 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BulkResponse
+{
+	private int created;
+	private int failed;
+	private List<BulkItemResult> results;
+
+	public BulkResponse()
+	{
+	}
+
+	public BulkResponse(int created, int failed, List<BulkItemResult> results)
+	{
+		this.created = created;
+		this.failed = failed;
+		this.results = results;
+	}
+
+	public static BulkResponse of(List<BulkItemResult> results)
+	{
+		int created = (int) results.stream().filter(r -> r.getStatus() == BulkItemResult.Status.CREATED).count();
+		return new BulkResponse(created, results.size() - created, results);
+	}
+}
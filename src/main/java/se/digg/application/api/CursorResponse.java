@@ -0,0 +1,52 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import java.util.List;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Keyset (seek) page: {@code nextCursor} is the sort key of the last row and is passed back
+ * as {@code lastId} to fetch the following page, so deep pages cost the same as the first one.
+ */
+@Getter
+@Setter
+public class CursorResponse<T>
+{
+	private List<T> content;
+	private int size;
+	private boolean hasNext;
+	private Long nextCursor;
+
+	public CursorResponse()
+	{
+	}
+
+	public CursorResponse(List<T> content, int size, boolean hasNext, Long nextCursor)
+	{
+		this.content = content;
+		this.size = size;
+		this.hasNext = hasNext;
+		this.nextCursor = nextCursor;
+	}
+
+	public static <T> CursorResponse<T> fromSlice(Slice<T> slice, Function<T, Long> cursorOf)
+	{
+		List<T> content = List.copyOf(slice.getContent());
+		Long nextCursor = content.isEmpty() ? null : cursorOf.apply(content.get(content.size() - 1));
+		return new CursorResponse<>(
+			content,
+			slice.getSize(),
+			slice.hasNext(),
+			nextCursor
+		);
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import java.util.Locale;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat
+{
+	NDJSON(MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"), "ndjson"),
+	CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv"),
+	;
+
+	private final MediaType mediaType;
+	private final String fileExtension;
+
+	public static ExportFormat of(String name)
+	{
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+}
@@ -7,32 +7,40 @@
  */
 package se.digg.application.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+/**
+ * Page of results. Responses built from a {@link Slice} carry no totals, only {@code hasNext}.
+ */
 @Getter
 @Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PageResponse<T>
 {
 	private List<T> content;
 	private int number;
 	private int size;
-	private long totalElements;
-	private int totalPages;
+	private Long totalElements;
+	private Integer totalPages;
+	private boolean hasNext;
 
 	public PageResponse()
 	{
 	}
 
-	public PageResponse(List<T> content, int number, int size, long totalElements, int totalPages)
+	public PageResponse(List<T> content, int number, int size, Long totalElements, Integer totalPages, boolean hasNext)
 	{
 		this.content = content;
 		this.number = number;
 		this.size = size;
 		this.totalElements = totalElements;
 		this.totalPages = totalPages;
+		this.hasNext = hasNext;
 	}
 
 	public static <T> PageResponse<T> fromPage(Page<T> page)
@@ -42,7 +50,20 @@ public class PageResponse<T>
 			page.getNumber(),
 			page.getSize(),
 			page.getTotalElements(),
-			page.getTotalPages()
+			page.getTotalPages(),
+			page.hasNext()
+		);
+	}
+
+	public static <T> PageResponse<T> fromSlice(Slice<T> slice)
+	{
+		return new PageResponse<>(
+			List.copyOf(slice.getContent()),
+			slice.getNumber(),
+			slice.getSize(),
+			null,
+			null,
+			slice.hasNext()
 		);
 	}
 }
\ No newline at end of file
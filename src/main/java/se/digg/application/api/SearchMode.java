@@ -0,0 +1,24 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import java.util.Locale;
+
+public enum SearchMode
+{
+	// Case-insensitive substring of any field, in id order
+	SUBSTRING,
+	// Every word of the query, ranked by relevance
+	FULLTEXT,
+	;
+
+	public static SearchMode of(String name)
+	{
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.api;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One typeahead completion: the user's name or email as stored, and which of the two matched.
+ */
+@Getter
+@Setter
+public class Suggestion
+{
+	public enum Field
+	{
+		NAME,
+		EMAIL,
+	}
+
+	private long id;
+	private Field field;
+	private String value;
+
+	public Suggestion()
+	{
+	}
+
+	public Suggestion(long id, Field field, String value)
+	{
+		this.id = id;
+		this.field = field;
+		this.value = value;
+	}
+}
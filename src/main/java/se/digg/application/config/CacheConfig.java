@@ -0,0 +1,22 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables Spring's cache abstraction. Provider, size and TTL come from {@code spring.cache.*}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig
+{
+	// Users by id, see UserServiceImpl
+	public static final String USERS_CACHE = "users";
+}
@@ -0,0 +1,75 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import se.digg.application.model.User;
+
+/**
+ * Regions for Hibernate's second-level and query cache, held in a local Caffeine-backed JCache.
+ * <p>
+ * Size and time-to-live of the {@link User} entity region and the query results region come from
+ * {@code digg.hibernate-cache.entity.*} and {@code digg.hibernate-cache.query.*}. Hit, miss and put counts
+ * are exported under {@code /actuator/metrics/hibernate.*}.
+ * <p>
+ * The entity region serves the {@code findAllById} that loads each page of index-backed searches and keyset
+ * pages, which the {@code users} Spring cache does not cover. Users created through {@code persist} enter it
+ * one by one, but the JPQL bulk UPDATE and DELETE statements in {@code UserRepository} cannot tell Hibernate
+ * which rows they touched, so each of them evicts the whole region.
+ */
+@Configuration
+public class HibernateCacheConfig
+{
+	private final Environment environment;
+
+	public HibernateCacheConfig(Environment environment)
+	{
+		this.environment = environment;
+	}
+
+	// Own manager per application context; the provider's default one is shared by every context in the JVM
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager()
+	{
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+			.getCacheManager(URI.create("digg:hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+		cacheManager.createCache(User.class.getName(), bounded("entity", 10_000, Duration.ofMinutes(10)));
+		cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded("query", 1_000, Duration.ofMinutes(5)));
+		// Cached query results are validated against these, so they must neither be evicted nor expire
+		cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+		return cacheManager;
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager)
+	{
+		return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+	}
+
+	private CaffeineConfiguration<Object, Object> bounded(String region, long defaultMaxSize, Duration defaultTtl)
+	{
+		String prefix = "digg.hibernate-cache." + region + ".";
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setMaximumSize(OptionalLong.of(environment.getProperty(prefix + "max-size", Long.class, defaultMaxSize)));
+		configuration.setExpireAfterWrite(OptionalLong.of(environment.getProperty(prefix + "ttl", Duration.class, defaultTtl).toNanos()));
+		return configuration;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+
+/**
+ * Creates beans that no request needs to be served on first use instead of at startup.
+ * <p>
+ * Unlike {@code spring.main.lazy-initialization}, which defers everything and moves the cost to the first
+ * requests, only beans declared by classes under {@code digg.startup.lazy-init.packages} are deferred: by
+ * default the OpenAPI docs and Swagger UI, Thymeleaf and the HTML error page. Beans that eager beans depend on
+ * are still created at startup.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "digg.startup.lazy-init.enabled", havingValue = "true")
+public class LazyInitConfig
+{
+	static final String[] DEFAULT_PACKAGES = {
+		"org.springdoc.",
+		"org.thymeleaf.",
+		"org.springframework.boot.autoconfigure.thymeleaf.",
+		"se.digg.application.controller.CustomErrorController"
+	};
+
+	// Static, so that this configuration is not created before the post-processor has run
+	@Bean
+	public static BeanFactoryPostProcessor lazyInitPostProcessor(Environment environment)
+	{
+		String[] prefixes = environment.getProperty("digg.startup.lazy-init.packages", String[].class, DEFAULT_PACKAGES);
+		return beanFactory ->
+		{
+			int deferred = 0;
+			for (String name : beanFactory.getBeanDefinitionNames())
+			{
+				BeanDefinition definition = beanFactory.getBeanDefinition(name);
+				String source = declaringClassName(definition);
+				if (source != null && !definition.isLazyInit() && startsWithAny(source, prefixes))
+				{
+					definition.setLazyInit(true);
+					deferred++;
+				}
+			}
+			log.info("Lazy initialization: {} beans deferred to first use", deferred);
+		};
+	}
+
+	// The configuration class of @Bean methods, otherwise the bean's own class
+	private static String declaringClassName(BeanDefinition definition)
+	{
+		if (definition instanceof AnnotatedBeanDefinition annotated)
+		{
+			MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+			if (factoryMethod != null)
+			{
+				return factoryMethod.getDeclaringClassName();
+			}
+		}
+		return definition.getBeanClassName();
+	}
+
+	private static boolean startsWithAny(String className, String[] prefixes)
+	{
+		for (String prefix : prefixes)
+		{
+			if (className.startsWith(prefix.strip()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
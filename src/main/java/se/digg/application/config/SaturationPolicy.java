@@ -0,0 +1,43 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import io.micrometer.core.instrument.Counter;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * What a WebSocket channel executor does once all threads are busy and its queue is full.
+ */
+public enum SaturationPolicy
+{
+	// Run on the submitting thread, slowing the producer (socket reader or broadcaster) instead of losing messages
+	CALLER_RUNS(new ThreadPoolExecutor.CallerRunsPolicy()),
+	// Drop the longest-queued task, whatever frame it sends: a lost /topic/users broadcast shows up as a version
+	// gap that clients refetch over, but a lost CONNECTED, RECEIPT, ERROR or heartbeat frame is not recovered
+	DROP_OLDEST(new ThreadPoolExecutor.DiscardOldestPolicy()),
+	// Throw, failing the send
+	ABORT(new ThreadPoolExecutor.AbortPolicy()),
+	;
+
+	private final RejectedExecutionHandler handler;
+
+	SaturationPolicy(RejectedExecutionHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	RejectedExecutionHandler counting(Counter saturated)
+	{
+		return (task, executor) ->
+		{
+			saturated.increment();
+			handler.rejectedExecution(task, executor);
+		};
+	}
+}
@@ -113,7 +113,7 @@ public class SecurityConfig
 		cfg.setAllowedOrigins(List.of("http://localhost:8081", "http://localhost:5173", "http://localhost:5174", "http://localhost:4173"));
 		cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
 		cfg.setAllowedHeaders(List.of("*"));
-		cfg.setExposedHeaders(List.of("Location"));
+		cfg.setExposedHeaders(List.of("Location", "ETag"));
 		cfg.setAllowCredentials(true);
 
 		UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,54 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps serving for {@code digg.shutdown.delay} after readiness has switched to refusing traffic, so a load
+ * balancer polling {@code /actuator/health/readiness} stops routing here before the web server stops accepting
+ * connections; graceful shutdown then drains the requests in flight.
+ * <p>
+ * Runs at the start of context close, right after Spring Boot has published
+ * {@code ReadinessState.REFUSING_TRAFFIC}. Zero (the default) shuts down at once.
+ */
+@Slf4j
+@Component
+public class ShutdownDelay
+{
+	private final Duration delay;
+
+	public ShutdownDelay(@Value("${digg.shutdown.delay:0s}") Duration delay)
+	{
+		this.delay = delay;
+	}
+
+	@EventListener(ContextClosedEvent.class)
+	public void awaitLoadBalancer()
+	{
+		if (delay.isZero() || delay.isNegative())
+		{
+			return;
+		}
+		log.info("Refusing traffic, shutting down in {}ms", delay.toMillis());
+		try
+		{
+			Thread.sleep(delay.toMillis());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			log.warn("Shutdown wait interrupted", e);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import se.digg.application.events.UserEventBroadcaster;
+
+/**
+ * Keeps one slow client from holding up {@code /topic/users} for everyone else.
+ * <p>
+ * On the outbound channel, a {@code /topic/users} message still queued for a session when a newer one for the
+ * same session arrives is dropped; only the latest state matters, and the version gap tells the client to
+ * refetch. Sessions that stay over the send-time or send-buffer limit are closed by Spring with
+ * {@link CloseStatus#SESSION_NOT_RELIABLE}; those closes are counted as
+ * {@code digg.websocket.sessions.slow}, and dropped messages as {@code digg.websocket.topic.conflated}.
+ */
+@Slf4j
+@Component
+public class SlowConsumerGuard implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory
+{
+	// Latest conflatable message per session that has not been delivered yet
+	private final Map<String, Message<?>> latest = new ConcurrentHashMap<>();
+	private final Counter conflated;
+	private final Counter disconnected;
+
+	public SlowConsumerGuard(MeterRegistry meterRegistry)
+	{
+		this.conflated = Counter.builder("digg.websocket.topic.conflated")
+			.description("Queued /topic/users messages skipped because a newer one was queued for the same session")
+			.register(meterRegistry);
+		this.disconnected = Counter.builder("digg.websocket.sessions.slow")
+			.description("Sessions closed for exceeding the send-time or send-buffer limit")
+			.register(meterRegistry);
+	}
+
+	@Override
+	public Message<?> preSend(Message<?> message, MessageChannel channel)
+	{
+		String sessionId = conflatableSession(message);
+		if (sessionId != null)
+		{
+			latest.put(sessionId, message);
+		}
+		return message;
+	}
+
+	@Override
+	public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler)
+	{
+		String sessionId = conflatableSession(message);
+		if (sessionId != null && latest.get(sessionId) != message)
+		{
+			conflated.increment();
+			return null;
+		}
+		return message;
+	}
+
+	@Override
+	public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex)
+	{
+		String sessionId = conflatableSession(message);
+		if (sessionId != null)
+		{
+			latest.remove(sessionId, message);
+		}
+	}
+
+	@Override
+	public WebSocketHandler decorate(WebSocketHandler handler)
+	{
+		return new WebSocketHandlerDecorator(handler)
+		{
+			@Override
+			public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception
+			{
+				latest.remove(session.getId());
+				if (closeStatus.getCode() == CloseStatus.SESSION_NOT_RELIABLE.getCode())
+				{
+					disconnected.increment();
+					log.warn("Closed slow WebSocket session {}", session.getId());
+				}
+				super.afterConnectionClosed(session, closeStatus);
+			}
+		};
+	}
+
+	private static String conflatableSession(Message<?> message)
+	{
+		if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+			|| !UserEventBroadcaster.TOPIC.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+		{
+			return null;
+		}
+		return SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+	}
+}
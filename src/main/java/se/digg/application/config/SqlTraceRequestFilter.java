@@ -0,0 +1,68 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import se.digg.application.util.SqlTraceFilter;
+
+/**
+ * Logs the SQL and bind parameters of single requests without raising Hibernate's log levels.
+ * <p>
+ * A request is traced when it carries {@value #HEADER} (honoured only with
+ * {@code digg.logging.sql-trace.header-enabled}) or is picked by {@code digg.logging.sql-trace.sample-rate}.
+ */
+@Component
+public class SqlTraceRequestFilter extends OncePerRequestFilter
+{
+	public static final String HEADER = "X-Debug-Sql";
+
+	private final boolean headerEnabled;
+	private final double sampleRate;
+
+	public SqlTraceRequestFilter(
+		@Value("${digg.logging.sql-trace.header-enabled:false}") boolean headerEnabled,
+		@Value("${digg.logging.sql-trace.sample-rate:0}") double sampleRate)
+	{
+		this.headerEnabled = headerEnabled;
+		this.sampleRate = sampleRate;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+		throws ServletException, IOException
+	{
+		if (!traced(request))
+		{
+			filterChain.doFilter(request, response);
+			return;
+		}
+		SqlTraceFilter.begin(request.getMethod() + " " + request.getRequestURI());
+		try
+		{
+			filterChain.doFilter(request, response);
+		}
+		finally
+		{
+			SqlTraceFilter.end();
+		}
+	}
+
+	private boolean traced(HttpServletRequest request)
+	{
+		return headerEnabled && request.getHeader(HEADER) != null
+			|| sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+	}
+}
@@ -24,7 +24,7 @@ public class WebCorsConfig implements WebMvcConfigurer
 			.allowedOrigins("http://localhost:4173", "http://localhost:5173", "http://localhost:5174", "http://localhost:8080", "http://localhost:8081")
 			.allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
 			.allowedHeaders("*")
-			.exposedHeaders("Location")
+			.exposedHeaders("Location", "ETag")
 			.allowCredentials(true);
 	}
 }
\ No newline at end of file
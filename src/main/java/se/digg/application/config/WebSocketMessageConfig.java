@@ -7,18 +7,48 @@
  */
 package se.digg.application.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+@Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketMessageConfig implements WebSocketMessageBrokerConfigurer
 {
+	// Cap on concurrently running channel tasks in virtual-thread mode; each one is a cheap virtual thread
+	private static final int VIRTUAL_CONCURRENCY = 1000;
+
+	private final Environment environment;
+	private final MeterRegistry meterRegistry;
+	private final SlowConsumerGuard slowConsumerGuard;
+
+	public WebSocketMessageConfig(Environment environment, MeterRegistry meterRegistry, SlowConsumerGuard slowConsumerGuard)
+	{
+		this.environment = environment;
+		this.meterRegistry = meterRegistry;
+		this.slowConsumerGuard = slowConsumerGuard;
+	}
 
 	@Override
 	public void registerStompEndpoints(StompEndpointRegistry registry)
@@ -47,32 +77,96 @@ public class WebSocketMessageConfig implements WebSocketMessageBrokerConfigurer
 	@Override
 	public void configureClientInboundChannel(ChannelRegistration registration)
 	{
-		ThreadPoolTaskExecutor inbound = new ThreadPoolTaskExecutor();
-		inbound.setThreadNamePrefix("ws-in-");
-		inbound.setCorePoolSize(2);
-		inbound.setMaxPoolSize(8);
-		inbound.setQueueCapacity(1000);
-		inbound.setKeepAliveSeconds(30);
-		inbound.setWaitForTasksToCompleteOnShutdown(true);
-		inbound.setAwaitTerminationSeconds(5);
-		inbound.initialize();
-
-		registration.taskExecutor(inbound);
+		registration.taskExecutor(channelExecutor("inbound", "ws-in-"));
 	}
 
 	@Override
 	public void configureClientOutboundChannel(ChannelRegistration registration)
 	{
-		ThreadPoolTaskExecutor outbound = new ThreadPoolTaskExecutor();
-		outbound.setThreadNamePrefix("ws-out-");
-		outbound.setCorePoolSize(2);
-		outbound.setMaxPoolSize(8);
-		outbound.setQueueCapacity(1000);
-		outbound.setKeepAliveSeconds(30);
-		outbound.setWaitForTasksToCompleteOnShutdown(true);
-		outbound.setAwaitTerminationSeconds(5);
-		outbound.initialize();
+		registration.taskExecutor(channelExecutor("outbound", "ws-out-"));
+		registration.interceptors(slowConsumerGuard);
+	}
+
+	/**
+	 * A session whose pending sends exceed {@code digg.websocket.session.send-buffer-size-limit}, or whose
+	 * current send takes longer than {@code digg.websocket.session.send-time-limit}, is closed instead of
+	 * tying up an outbound thread.
+	 */
+	@Override
+	public void configureWebSocketTransport(WebSocketTransportRegistration registration)
+	{
+		registration
+			.setSendTimeLimit((int) environment.getProperty("digg.websocket.session.send-time-limit", Duration.class, Duration.ofSeconds(5)).toMillis())
+			.setSendBufferSizeLimit((int) environment.getProperty("digg.websocket.session.send-buffer-size-limit", DataSize.class, DataSize.ofKilobytes(256)).toBytes())
+			.addDecoratorFactory(slowConsumerGuard);
+	}
+
+	/**
+	 * Sized from {@code digg.websocket.<channel>.*}, with its saturation policy applied once threads and queue
+	 * are exhausted. Pool and queue gauges are exported as {@code executor.*} with {@code name=websocket.<channel>},
+	 * queue wait as {@code digg.websocket.channel.wait} and saturation events as
+	 * {@code digg.websocket.channel.saturated}.
+	 * <p>
+	 * With {@code spring.threads.virtual.enabled} on Java 21 every task gets its own virtual thread, so handlers
+	 * blocked on JDBC or a slow client socket no longer hold one of a few pooled threads; the pool sizes are
+	 * then replaced by a fixed concurrency cap. The channel API only takes a {@link ThreadPoolTaskExecutor},
+	 * hence a pool whose thread factory makes virtual threads.
+	 */
+	private ThreadPoolTaskExecutor channelExecutor(String channel, String threadNamePrefix)
+	{
+		String prefix = "digg.websocket." + channel + ".";
+		SaturationPolicy policy = environment.getProperty(prefix + "saturation-policy", SaturationPolicy.class, SaturationPolicy.CALLER_RUNS);
+		Tags tags = Tags.of("channel", channel);
+		Counter saturated = Counter.builder("digg.websocket.channel.saturated")
+			.description("Tasks hitting the saturation policy because threads and queue were full")
+			.tags(tags.and("policy", policy.name()))
+			.register(meterRegistry);
+		Timer wait = Timer.builder("digg.websocket.channel.wait")
+			.description("Time a message spent queued before a channel thread picked it up")
+			.tags(tags)
+			.register(meterRegistry);
 
-		registration.taskExecutor(outbound);
+		// Spring registers the executor as a bean and initializes it, so bind the gauges to the pool it creates then
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor()
+		{
+			@Override
+			protected ExecutorService initializeExecutor(ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler)
+			{
+				ExecutorService service = super.initializeExecutor(threadFactory, rejectedExecutionHandler);
+				new ExecutorServiceMetrics(service, "websocket." + channel, tags).bindTo(meterRegistry);
+				return service;
+			}
+		};
+		executor.setThreadNamePrefix(threadNamePrefix);
+		if (Threading.VIRTUAL.isActive(environment))
+		{
+			executor.setThreadFactory(new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory());
+			executor.setCorePoolSize(VIRTUAL_CONCURRENCY);
+			executor.setMaxPoolSize(VIRTUAL_CONCURRENCY);
+			executor.setAllowCoreThreadTimeOut(true);
+			executor.setKeepAliveSeconds(1);
+		}
+		else
+		{
+			executor.setCorePoolSize(environment.getProperty(prefix + "core-size", Integer.class, 2));
+			executor.setMaxPoolSize(environment.getProperty(prefix + "max-size", Integer.class, 8));
+			executor.setKeepAliveSeconds((int) environment.getProperty(prefix + "keep-alive", Duration.class, Duration.ofSeconds(30)).toSeconds());
+		}
+		executor.setQueueCapacity(environment.getProperty(prefix + "queue-capacity", Integer.class, 1000));
+		executor.setRejectedExecutionHandler(policy.counting(saturated));
+		executor.setTaskDecorator(task ->
+		{
+			long queuedAt = System.nanoTime();
+			return () ->
+			{
+				wait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+				task.run();
+			};
+		});
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationSeconds(5);
+		log.info("WebSocket {} channel: core={}, max={}, queue={}, policy={}", channel,
+			executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getQueueCapacity(), policy);
+		return executor;
 	}
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -39,4 +40,16 @@ public class GlobalExceptionHandler
 
 		return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
 	}
+
+	// The user changed since the version the client sent in If-Match
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex)
+	{
+		Map<String, Object> response = new HashMap<>();
+		response.put("status", HttpStatus.PRECONDITION_FAILED.value());
+		response.put("error", "Precondition Failed");
+		response.put("message", ex.getMessage());
+
+		return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+	}
 }
\ No newline at end of file
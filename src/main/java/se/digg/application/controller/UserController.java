@@ -7,25 +7,38 @@
  */
 package se.digg.application.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -33,13 +46,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import se.digg.application.api.BulkDeleteResponse;
+import se.digg.application.api.BulkItemResult;
+import se.digg.application.api.BulkResponse;
+import se.digg.application.api.CursorResponse;
+import se.digg.application.api.ExportFormat;
 import se.digg.application.api.PageResponse;
+import se.digg.application.api.SearchMode;
+import se.digg.application.api.Suggestion;
 import se.digg.application.events.UserEvent;
+import se.digg.application.events.UserEventBroadcaster;
 import se.digg.application.model.User;
 import se.digg.application.service.UserServiceImpl;
+import se.digg.application.service.UserTableVersion;
 
 @Slf4j
 @RestController
@@ -50,26 +75,54 @@ public class UserController
 {
 
 	@Autowired
-	private SimpMessagingTemplate messagingTemplate;
+	private UserEventBroadcaster eventBroadcaster;
 
 	@Autowired
 	private UserServiceImpl userServiceImpl;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private UserTableVersion tableVersion;
+
+	@Value("${digg.user.bulk.max-size:10000}")
+	private int maxBulkSize;
+
+	@Value("${digg.search.suggest.max-size:50}")
+	private int maxSuggestions;
+
+	@Value("${digg.user.after.max-size:1000}")
+	private int maxAfterSize;
+
 	public UserController(UserServiceImpl userServiceImpl)
 	{
 		this.userServiceImpl = userServiceImpl;
 	}
 
-	// Paged list: numeric regex avoids collisions with {id}
+	// Paged list: numeric regex avoids collisions with {id}; ?slice=true skips the totals
 	@GetMapping("/{page:\\d+}/{size:\\d+}")
 	@Operation(summary = "Retrieve paged users", description = "Get all users with pagination")
 	@ApiResponse(responseCode = "200", description = "Successfully retrieved users")
 	public ResponseEntity<PageResponse<User>> getUsers(
 		@PathVariable int page,
-		@PathVariable int size)
+		@PathVariable int size,
+		@Parameter(description = "Return hasNext instead of totals") @RequestParam(defaultValue = "false") boolean slice,
+		ServletWebRequest request)
 	{
-		log.debug("REST call: GET /digg/user/{}/{}", page, size);
+		if (log.isDebugEnabled())
+		{
+			log.debug("REST call: GET /digg/user/{}/{} (slice={})", page, size, slice);
+		}
+		if (checkNotModified(request, tableVersion.etag(), tableVersion.lastModified()))
+		{
+			return null;
+		}
 		Pageable pageable = PageRequest.of(page, size);
+		if (slice)
+		{
+			return ResponseEntity.ok(PageResponse.fromSlice(userServiceImpl.getUsersSlice(pageable)));
+		}
 		Page<User> userPage = userServiceImpl.getUsers(pageable);
 		return ResponseEntity.ok(PageResponse.fromPage(userPage));
 	}
@@ -77,21 +130,227 @@ public class UserController
 	// Paged search
 	@GetMapping("/{page:\\d+}/{size:\\d+}/search/{query}")
 	@Operation(summary = "Retrieve paged search", description = "Search users with a pagination")
-	@ApiResponse(responseCode = "200", description = "Successfully retrieved users")
+	@ApiResponses(value = {
+		@ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+		@ApiResponse(responseCode = "400", description = "Unknown mode")
+	})
 	public ResponseEntity<PageResponse<User>> queryUsers(
 		@PathVariable int page,
 		@PathVariable int size,
-		@PathVariable String query)
+		@PathVariable String query,
+		@Parameter(description = "Return hasNext instead of totals") @RequestParam(defaultValue = "false") boolean slice,
+		@Parameter(description = "substring, or fulltext for whole words ranked by relevance") @RequestParam(defaultValue = "substring") String mode,
+		ServletWebRequest request)
 	{
-		log.debug("REST call: GET /digg/user/{}/{}/search/{}", page, size, query);
+		if (log.isDebugEnabled())
+		{
+			log.debug("REST call: GET /digg/user/{}/{}/search/{} (slice={}, mode={})", page, size, query, slice, mode);
+		}
+		SearchMode searchMode;
+		try
+		{
+			searchMode = SearchMode.of(mode);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		if (checkNotModified(request, tableVersion.etag(), tableVersion.lastModified()))
+		{
+			return null;
+		}
 		Pageable pageable = PageRequest.of(page, size);
+		if (searchMode == SearchMode.FULLTEXT)
+		{
+			// Ranking needs every match anyway, so the total comes for free
+			Page<User> ranked = userServiceImpl.searchUsers(query, pageable);
+			return ResponseEntity.ok(slice ? PageResponse.fromSlice(ranked) : PageResponse.fromPage(ranked));
+		}
+		if (slice)
+		{
+			return ResponseEntity.ok(PageResponse.fromSlice(userServiceImpl.queryUsersSlice(query, pageable)));
+		}
 		Page<User> userPage = userServiceImpl.queryUsers(query, pageable);
 		return ResponseEntity.ok(PageResponse.fromPage(userPage));
 	}
 
-	// Unpaged, full list
+	// Typeahead: served from memory, so cheap enough for every keystroke
+	@GetMapping("/suggest")
+	@Operation(summary = "Suggest completions", description = "Names, words in names and emails starting with the prefix, for typeahead. "
+		+ "Right after startup, until the suggest index is built, only whole names and emails are matched")
+	@ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions")
+	public ResponseEntity<List<Suggestion>> suggestUsers(
+		@Parameter(description = "Start of a name, a word in a name, or an email") @RequestParam String prefix,
+		@Parameter(description = "Maximum number of suggestions") @RequestParam(defaultValue = "10") int size,
+		ServletWebRequest request)
+	{
+		log.debug("REST call: GET /digg/user/suggest?prefix={}", prefix);
+		if (checkNotModified(request, tableVersion.etag(), tableVersion.lastModified()))
+		{
+			return null;
+		}
+		return ResponseEntity.ok(userServiceImpl.suggestUsers(prefix, Math.min(size, maxSuggestions)));
+	}
+
+	// Keyset list: pass the previous response's nextCursor as lastId (0 for the first page)
+	@GetMapping("/after/{lastId:\\d+}/{size:\\d+}")
+	@Operation(summary = "Retrieve users after cursor", description = "Get users with keyset pagination, ordered by ID")
+	@ApiResponses(value = {
+		@ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+		@ApiResponse(responseCode = "400", description = "Size out of range")
+	})
+	public ResponseEntity<CursorResponse<User>> getUsersAfter(
+		@PathVariable long lastId,
+		@PathVariable int size,
+		ServletWebRequest request)
+	{
+		log.debug("REST call: GET /digg/user/after/{}/{}", lastId, size);
+		if (size < 1 || size > maxAfterSize)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		if (checkNotModified(request, tableVersion.etag(), tableVersion.lastModified()))
+		{
+			return null;
+		}
+		Slice<User> userSlice = userServiceImpl.getUsersAfter(lastId, size);
+		return ResponseEntity.ok(CursorResponse.fromSlice(userSlice, User::getId));
+	}
+
+	// Keyset search
+	@GetMapping("/after/{lastId:\\d+}/{size:\\d+}/search/{query}")
+	@Operation(summary = "Retrieve search after cursor", description = "Search users with keyset pagination, ordered by ID")
+	@ApiResponses(value = {
+		@ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+		@ApiResponse(responseCode = "400", description = "Size out of range")
+	})
+	public ResponseEntity<CursorResponse<User>> queryUsersAfter(
+		@PathVariable long lastId,
+		@PathVariable int size,
+		@PathVariable String query,
+		ServletWebRequest request)
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("REST call: GET /digg/user/after/{}/{}/search/{}", lastId, size, query);
+		}
+		if (size < 1 || size > maxAfterSize)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		if (checkNotModified(request, tableVersion.etag(), tableVersion.lastModified()))
+		{
+			return null;
+		}
+		Slice<User> userSlice = userServiceImpl.queryUsersAfter(query, lastId, size);
+		return ResponseEntity.ok(CursorResponse.fromSlice(userSlice, User::getId));
+	}
+
+	// Streamed export: rows are written as they are read, so memory stays flat for any table size
+	@GetMapping("/export")
+	@Operation(summary = "Export all users", description = "Stream ALL users as NDJSON (default) or CSV")
+	@ApiResponses(value = {
+		@ApiResponse(responseCode = "200", description = "Export streamed"),
+		@ApiResponse(responseCode = "400", description = "Unknown format")
+	})
+	public ResponseEntity<StreamingResponseBody> exportUsers(
+		@Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format)
+	{
+		log.debug("REST call: GET /digg/user/export?format={}", format);
+		ExportFormat exportFormat;
+		try
+		{
+			exportFormat = ExportFormat.of(format);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+
+		StreamingResponseBody body = out ->
+		{
+			try
+			{
+				switch (exportFormat)
+				{
+					case NDJSON -> writeNdjson(out);
+					case CSV -> writeCsv(out);
+				}
+			}
+			catch (UncheckedIOException e)
+			{
+				throw e.getCause();
+			}
+		};
+		return ResponseEntity.ok()
+			.contentType(exportFormat.getMediaType())
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.getFileExtension() + "\"")
+			.body(body);
+	}
+
+	private void writeNdjson(OutputStream out) throws IOException
+	{
+		// Flushing per row would turn every user into its own socket write
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+		// Rows are terminated by '\n' below instead of Jackson's default ' ' root separator
+		generator.setRootValueSeparator(null);
+		userServiceImpl.exportUsers(user ->
+		{
+			try
+			{
+				writer.writeValue(generator, user);
+				generator.writeRaw('\n');
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+		generator.flush();
+	}
+
+	private void writeCsv(OutputStream out) throws IOException
+	{
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write("id,name,address,email,telephone\r\n");
+		userServiceImpl.exportUsers(user ->
+		{
+			try
+			{
+				writer.write(String.valueOf(user.getId()));
+				for (String field : new String[]{user.getName(), user.getAddress(), user.getEmail(), user.getTelephone()})
+				{
+					writer.write(',');
+					writer.write(csvField(field));
+				}
+				writer.write("\r\n");
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+		writer.flush();
+	}
+
+	// RFC 4180 quoting
+	private static String csvField(String value)
+	{
+		if (value == null)
+		{
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+		{
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	// Unpaged, full list - loads every row into memory, prefer /export for large tables
 	@GetMapping
-	@Operation(summary = "Get all users", description = "Retrieve ALL users, un-paged")
+	@Operation(summary = "Get all users", description = "Retrieve ALL users, un-paged. Prefer /export, which streams", deprecated = true)
 	@ApiResponse(responseCode = "200", description = "Successfully retrieved users")
 	public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) String query)
 	{
@@ -103,13 +362,43 @@ public class UserController
 	@Operation(summary = "Get user by ID", description = "Retrieve a specific user by their ID")
 	@ApiResponses(value = {
 		@ApiResponse(responseCode = "200", description = "User found"),
+		@ApiResponse(responseCode = "304", description = "User unchanged since the given ETag"),
 		@ApiResponse(responseCode = "404", description = "User not found")
 	})
-	public ResponseEntity<User> getUserById(@Parameter(description = "User ID") @PathVariable Long id)
+	public ResponseEntity<User> getUserById(@Parameter(description = "User ID") @PathVariable Long id, ServletWebRequest request)
 	{
 		log.debug("REST call: GET /digg/user/{}", id);
+		// Served from the users cache, so a revalidation costs neither a query nor serialization
 		Optional<User> user = userServiceImpl.getUserById(id);
-		return user.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+		if (user.isEmpty())
+		{
+			return ResponseEntity.notFound().build();
+		}
+		if (checkNotModified(request, etag(user.get()), tableVersion.lastModified()))
+		{
+			return null;
+		}
+		return ResponseEntity.ok(user.get());
+	}
+
+	// Version within the database the user is stored in, see UserService.storageEpoch()
+	private String etag(User user)
+	{
+		return user.getVersion() == null ? null : "\"v" + userServiceImpl.storageEpoch() + "-" + user.getVersion() + "\"";
+	}
+
+	/**
+	 * Sets the validators and answers {@code If-None-Match} (or else {@code If-Modified-Since}) with 304.
+	 * Returns {@code true} when the handler should stop and return {@code null}.
+	 * <p>
+	 * Last-Modified is the last write to the whole table, so it never understates a change but has only
+	 * second resolution; the ETag is the exact one. {@code no-cache} lets clients keep the body and
+	 * revalidate, instead of Spring Security's default {@code no-store}.
+	 */
+	private static boolean checkNotModified(ServletWebRequest request, String etag, long lastModified)
+	{
+		request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+		return request.checkNotModified(etag, lastModified);
 	}
 
 	// POST upsert (primary): create → 201 + Location; update → 200, 404 if id not found
@@ -119,26 +408,29 @@ public class UserController
 		@ApiResponse(responseCode = "201", description = "User created successfully"),
 		@ApiResponse(responseCode = "200", description = "User updated successfully"),
 		@ApiResponse(responseCode = "400", description = "Invalid user data"),
-		@ApiResponse(responseCode = "404", description = "User not found for update")
+		@ApiResponse(responseCode = "404", description = "User not found for update"),
+		@ApiResponse(responseCode = "412", description = "User changed since the If-Match ETag")
 	})
-	public ResponseEntity<User> saveUserUpsert(@Valid @RequestBody User user)
+	public ResponseEntity<User> saveUserUpsert(
+		@Valid @RequestBody User user,
+		@Parameter(description = "ETag from GET /digg/user/{id}") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
 	{
 		if (user.getId() == null)
 		{
-			log.debug("REST call: POST /digg/user (create) with data: {}", user);
+			log.debug("REST call: POST /digg/user (create)");
 			User created = userServiceImpl.createUser(user);
-			messagingTemplate.convertAndSend("/topic/users", Map.of("event", UserEvent.ADD));
+			eventBroadcaster.publish(UserEvent.ADD, created);
 			URI location = URI.create("/digg/user/" + created.getId());
 			return ResponseEntity.created(location).header(HttpHeaders.LOCATION, location.toString()).body(created);
 		}
 		else
 		{
-			log.debug("REST call: POST /digg/user (update) with data: {}", user);
-			Optional<User> updated = userServiceImpl.updateUser(user.getId(), user);
+			log.debug("REST call: POST /digg/user (update) id={}", user.getId());
+			Optional<User> updated = update(user.getId(), user, ifMatch);
 			if (updated.isPresent())
 			{
-				messagingTemplate.convertAndSend("/topic/users", Map.of("event", UserEvent.EDIT));
-				return ResponseEntity.ok(updated.get());
+				eventBroadcaster.publish(UserEvent.EDIT, updated.get());
+				return ResponseEntity.ok().eTag(etag(updated.get())).body(updated.get());
 			}
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
@@ -153,24 +445,84 @@ public class UserController
 	})
 	public ResponseEntity<User> createUser(@Valid @RequestBody User user)
 	{
-		log.debug("REST call: POST /digg/user/add with data: {}", user);
+		log.debug("REST call: POST /digg/user/add");
 		User createdUser = userServiceImpl.createUser(user);
-		messagingTemplate.convertAndSend("/topic/users", Map.of("event", UserEvent.ADD));
+		eventBroadcaster.publish(UserEvent.ADD, createdUser);
 		URI location = URI.create("/digg/user/" + createdUser.getId());
 		return ResponseEntity.created(location).header(HttpHeaders.LOCATION, location.toString()).body(createdUser);
 	}
 
+	// Bulk create: per-item results, one aggregated event for the whole batch
+	@PostMapping("/bulk")
+	@Operation(summary = "Create users in bulk", description = "Validate and insert many users with batched statements")
+	@ApiResponses(value = {
+		@ApiResponse(responseCode = "200", description = "Request processed, see per-item results"),
+		@ApiResponse(responseCode = "400", description = "Empty request or too many items")
+	})
+	public ResponseEntity<BulkResponse> createUsers(@RequestBody List<User> users)
+	{
+		log.debug("REST call: POST /digg/user/bulk with {} users", users.size());
+		if (users.isEmpty() || users.size() > maxBulkSize)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		BulkResponse response = BulkResponse.of(userServiceImpl.createUsers(users));
+		if (response.getCreated() > 0)
+		{
+			eventBroadcaster.publishUsers(UserEvent.ADD, response.getResults().stream()
+				.filter(r -> r.getStatus() == BulkItemResult.Status.CREATED)
+				.map(r -> withId(users.get(r.getIndex()), r.getId()))
+				.toList());
+		}
+		return ResponseEntity.ok(response);
+	}
+
+	// Bulk delete: one statement for all ids, one event listing them
+	@PostMapping("/bulk/delete")
+	@Operation(summary = "Delete users in bulk", description = "Delete many users by id with a single statement; unknown ids are ignored")
+	@ApiResponses(value = {
+		@ApiResponse(responseCode = "200", description = "Request processed, see counts"),
+		@ApiResponse(responseCode = "400", description = "Empty request or too many ids")
+	})
+	public ResponseEntity<BulkDeleteResponse> deleteUsers(@RequestBody List<Long> ids)
+	{
+		log.debug("REST call: POST /digg/user/bulk/delete with {} ids", ids.size());
+		if (ids.isEmpty() || ids.size() > maxBulkSize)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		List<Long> unique = ids.stream().filter(Objects::nonNull).distinct().toList();
+		int deleted = userServiceImpl.deleteUsers(unique);
+		if (deleted > 0)
+		{
+			// Ids that did not exist are included; removing them is a no-op for subscribers
+			eventBroadcaster.publish(UserEvent.DELETE, unique);
+		}
+		return ResponseEntity.ok(new BulkDeleteResponse(unique.size(), deleted));
+	}
+
+	private static User withId(User user, Long id)
+	{
+		User copy = new User(id, user.getName(), user.getAddress(), user.getEmail(), user.getTelephone());
+		copy.setVersion(user.getVersion());
+		return copy;
+	}
+
 	// Update aliases: /edit/{id} and /{id}
 	@PutMapping("/edit/{id:\\d+}")
 	@Operation(summary = "Update user", description = "Update an existing user")
 	@ApiResponses(value = {
 		@ApiResponse(responseCode = "200", description = "User updated successfully"),
 		@ApiResponse(responseCode = "404", description = "User not found"),
-		@ApiResponse(responseCode = "400", description = "Invalid user data")
+		@ApiResponse(responseCode = "400", description = "Invalid user data"),
+		@ApiResponse(responseCode = "412", description = "User changed since the If-Match ETag")
 	})
-	public ResponseEntity<User> updateUserLegacy(@Parameter(description = "User ID") @PathVariable Long id, @Valid @RequestBody User user)
+	public ResponseEntity<User> updateUserLegacy(
+		@Parameter(description = "User ID") @PathVariable Long id,
+		@Valid @RequestBody User user,
+		@Parameter(description = "ETag from GET /digg/user/{id}") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
 	{
-		return doUpdate(id, user);
+		return doUpdate(id, user, ifMatch);
 	}
 
 	@PutMapping("/{id:\\d+}")
@@ -178,25 +530,58 @@ public class UserController
 	@ApiResponses(value = {
 		@ApiResponse(responseCode = "200", description = "User updated successfully"),
 		@ApiResponse(responseCode = "404", description = "User not found"),
-		@ApiResponse(responseCode = "400", description = "Invalid user data")
+		@ApiResponse(responseCode = "400", description = "Invalid user data"),
+		@ApiResponse(responseCode = "412", description = "User changed since the If-Match ETag")
 	})
-	public ResponseEntity<User> updateUser(@Parameter(description = "User ID") @PathVariable Long id, @Valid @RequestBody User user)
+	public ResponseEntity<User> updateUser(
+		@Parameter(description = "User ID") @PathVariable Long id,
+		@Valid @RequestBody User user,
+		@Parameter(description = "ETag from GET /digg/user/{id}") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
 	{
-		return doUpdate(id, user);
+		return doUpdate(id, user, ifMatch);
 	}
 
-	private ResponseEntity<User> doUpdate(Long id, User user)
+	private ResponseEntity<User> doUpdate(Long id, User user, String ifMatch)
 	{
-		log.debug("REST call: PUT /digg/user/{} with data: {}", id, user);
-		Optional<User> updatedUser = userServiceImpl.updateUser(id, user);
+		log.debug("REST call: PUT /digg/user/{}", id);
+		Optional<User> updatedUser = update(id, user, ifMatch);
 		if (updatedUser.isPresent())
 		{
-			messagingTemplate.convertAndSend("/topic/users", Map.of("event", UserEvent.EDIT));
-			return ResponseEntity.ok(updatedUser.get());
+			eventBroadcaster.publish(UserEvent.EDIT, updatedUser.get());
+			return ResponseEntity.ok().eTag(etag(updatedUser.get())).body(updatedUser.get());
 		}
 		return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 	}
 
+	// Without If-Match (or with "*") the last writer wins; a stale tag surfaces as 412 via GlobalExceptionHandler
+	private Optional<User> update(Long id, User user, String ifMatch)
+	{
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+		{
+			return userServiceImpl.updateUser(id, user);
+		}
+		return userServiceImpl.updateUser(id, user, versionOf(ifMatch.trim()));
+	}
+
+	// Inverse of etag(User); a tag that is not ours, or from another database, can never match, so it maps to a
+	// version no row has
+	private long versionOf(String etag)
+	{
+		String prefix = "\"v" + userServiceImpl.storageEpoch() + "-";
+		if (etag.length() > prefix.length() + 1 && etag.startsWith(prefix) && etag.endsWith("\""))
+		{
+			try
+			{
+				return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+			}
+			catch (NumberFormatException e)
+			{
+				return -1;
+			}
+		}
+		return -1;
+	}
+
 	// DELETE returns 204 on success, 404 on missing; emits event only when deleted
 	@DeleteMapping("/{id:\\d+}")
 	@Operation(summary = "Delete user", description = "Delete a user from the system")
@@ -210,7 +595,7 @@ public class UserController
 		boolean deleted = userServiceImpl.deleteUser(id);
 		if (deleted)
 		{
-			messagingTemplate.convertAndSend("/topic/users", Map.of("event", UserEvent.DELETE));
+			eventBroadcaster.publish(UserEvent.DELETE, id);
 			return ResponseEntity.noContent().build();
 		}
 		return ResponseEntity.notFound().build();
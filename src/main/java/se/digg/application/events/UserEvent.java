@@ -12,5 +12,7 @@ public enum UserEvent
 	ADD,
 	EDIT,
 	DELETE,
+	// Several kinds of change merged into one broadcast
+	BATCH,
 	;
 }
@@ -0,0 +1,203 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import se.digg.application.model.User;
+
+/**
+ * Sends user change events to {@code /topic/users}.
+ * <p>
+ * With a non-zero window, every change published within the window after the first one is merged into a
+ * single broadcast, so N writes cause one client refetch instead of N. The window is fixed rather than
+ * sliding, so a steady stream of writes still gets delivered at least once per window.
+ * <p>
+ * Every change carries the user id, a version that increases by one per change, and for ADD/EDIT the user
+ * itself, so subscribers can patch their view instead of refetching. A broadcast covers the versions
+ * {@code fromVersion..version}; a client that sees {@code fromVersion} other than its last version plus one
+ * has missed something (or the server restarted) and should refetch.
+ * <p>
+ * Time spent in {@link SimpMessagingTemplate#convertAndSend} is recorded per broadcast as
+ * {@code digg.events.broadcast}, tagged with the (aggregate) event.
+ */
+@Slf4j
+@Component
+public class UserEventBroadcaster
+{
+	public static final String TOPIC = "/topic/users";
+
+	private final SimpMessagingTemplate messagingTemplate;
+	private final Duration window;
+	private final int maxChanges;
+	private final ScheduledExecutorService scheduler;
+	private final Map<UserEvent, Timer> broadcastTimers = new EnumMap<>(UserEvent.class);
+
+	private final Object lock = new Object();
+	private List<Map<String, Object>> pending = new ArrayList<>();
+	private long version;
+
+	public UserEventBroadcaster(
+		SimpMessagingTemplate messagingTemplate,
+		MeterRegistry meterRegistry,
+		@Value("${digg.events.window:0ms}") Duration window,
+		@Value("${digg.events.max-changes:500}") int maxChanges)
+	{
+		this.messagingTemplate = messagingTemplate;
+		this.window = window;
+		this.maxChanges = maxChanges;
+		this.scheduler = window.isZero() ? null : Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread thread = new Thread(r, "user-events");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (UserEvent event : UserEvent.values())
+		{
+			broadcastTimers.put(event, Timer.builder("digg.events.broadcast")
+				.description("Time to hand a /topic/users broadcast to the broker")
+				.tag("event", event.name())
+				.register(meterRegistry));
+		}
+	}
+
+	public void publish(UserEvent event, User user)
+	{
+		enqueue(List.of(change(event, user.getId(), user)));
+	}
+
+	public void publish(UserEvent event, Long id)
+	{
+		enqueue(List.of(change(event, id, null)));
+	}
+
+	public void publish(UserEvent event, Collection<Long> ids)
+	{
+		List<Map<String, Object>> changes = new ArrayList<>(ids.size());
+		for (Long id : ids)
+		{
+			changes.add(change(event, id, null));
+		}
+		enqueue(changes);
+	}
+
+	public void publishUsers(UserEvent event, Collection<User> users)
+	{
+		List<Map<String, Object>> changes = new ArrayList<>(users.size());
+		for (User user : users)
+		{
+			changes.add(change(event, user.getId(), user));
+		}
+		enqueue(changes);
+	}
+
+	private static Map<String, Object> change(UserEvent event, Long id, User user)
+	{
+		Map<String, Object> change = new LinkedHashMap<>();
+		change.put("event", event);
+		change.put("id", id);
+		if (user != null)
+		{
+			change.put("user", user);
+		}
+		return change;
+	}
+
+	// Versions are assigned under the lock, and immediate sends happen under it too, so they reach the broker in order
+	private void enqueue(List<Map<String, Object>> changes)
+	{
+		synchronized (lock)
+		{
+			for (Map<String, Object> change : changes)
+			{
+				change.put("version", ++version);
+			}
+
+			if (scheduler == null)
+			{
+				send(changes);
+				return;
+			}
+
+			boolean first = pending.isEmpty();
+			pending.addAll(changes);
+			if (first)
+			{
+				scheduler.schedule(this::flush, window.toMillis(), TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	void flush()
+	{
+		List<Map<String, Object>> changes;
+		synchronized (lock)
+		{
+			changes = pending;
+			pending = new ArrayList<>();
+		}
+		if (!changes.isEmpty())
+		{
+			send(changes);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow();
+			flush();
+		}
+	}
+
+	private void send(List<Map<String, Object>> changes)
+	{
+		Map<String, Object> payload = new LinkedHashMap<>();
+		payload.put("event", aggregateEvent(changes));
+		payload.put("count", changes.size());
+		payload.put("fromVersion", changes.get(0).get("version"));
+		payload.put("version", changes.get(changes.size() - 1).get("version"));
+		// Past the cap clients would rather refetch than patch, so skip the bulky list
+		if (changes.size() <= maxChanges)
+		{
+			payload.put("changes", changes);
+		}
+		log.debug("Broadcasting {} user change(s) to {}", changes.size(), TOPIC);
+		broadcastTimers.get(payload.get("event")).record(() -> messagingTemplate.convertAndSend(TOPIC, payload));
+	}
+
+	private static UserEvent aggregateEvent(List<Map<String, Object>> changes)
+	{
+		Object first = changes.get(0).get("event");
+		for (Map<String, Object> change : changes)
+		{
+			if (change.get("event") != first)
+			{
+				return UserEvent.BATCH;
+			}
+		}
+		return (UserEvent) first;
+	}
+}
@@ -7,25 +7,35 @@
  */
 package se.digg.application.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // region configured in HibernateCacheConfig
 public class User
 {
+	// Pooled sequence (one round trip per 50 ids) rather than IDENTITY, which rules out JDBC insert batching
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+	@SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
 	private Long id;
 
 	@Column(nullable = false)
@@ -44,6 +54,22 @@ public class User
 	@NotBlank(message = "Telephone is required")
 	private String telephone;
 
+	// Bumped by Hibernate on every update; the ETag of GET /digg/user/{id}
+	@Version
+	private Long version;
+
+	// Lower-cased copies generated by the database (db/migration V2), indexed for prefix lookups; query-only,
+	// and left null on instances the application created itself
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@Column(name = "name_lower", insertable = false, updatable = false)
+	private String nameLower;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@Column(name = "email_lower", insertable = false, updatable = false)
+	private String emailLower;
+
 	public User()
 	{
 	}
@@ -74,6 +100,7 @@ public class User
 			", address='" + address + '\'' +
 			", email='" + email + '\'' +
 			", telephone='" + telephone + '\'' +
+			", version=" + version +
 			'}';
 	}
 }
\ No newline at end of file
@@ -7,19 +7,34 @@
  */
 package se.digg.application.repository;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import se.digg.application.model.User;
 
 public interface UserRepository extends JpaRepository<User, Long>
 {
 	List<User> findByNameContainingIgnoreCase(String name);
 
+	// Cacheable queries: results (ids) live in the query cache until a write to users invalidates them
+	@Override
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	Page<User> findAll(Pageable pageable);
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	@Query("SELECT u FROM User u WHERE "
 		+ "LOWER(u.name) LIKE LOWER(CONCAT('%', :query, '%')) OR "
 		+ "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) OR "
@@ -27,5 +42,72 @@ public interface UserRepository extends JpaRepository<User, Long>
 		+ "LOWER(u.telephone) LIKE LOWER(CONCAT('%', :query, '%'))")
 	Page<User> queryUsers(@Param("query") String query, Pageable pageable);
 
+	// Same search without the count query; fetches one extra row to tell whether there is a next page
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT u FROM User u WHERE "
+		+ "LOWER(u.name) LIKE LOWER(CONCAT('%', :query, '%')) OR "
+		+ "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) OR "
+		+ "LOWER(u.address) LIKE LOWER(CONCAT('%', :query, '%')) OR "
+		+ "LOWER(u.telephone) LIKE LOWER(CONCAT('%', :query, '%'))")
+	Slice<User> queryUsersSlice(@Param("query") String query, Pageable pageable);
+
+	// Page content only, for when the total is already known
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	List<User> findAllBy(Pageable pageable);
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	Slice<User> findSliceBy(Pageable pageable);
+
+	// Keyset pagination: seek past the last seen id instead of skipping OFFSET rows
+	List<User> findByIdGreaterThanOrderByIdAsc(Long lastId, Pageable pageable);
+
+	@Query("SELECT u FROM User u WHERE u.id > :lastId AND ("
+		+ "LOWER(u.name) LIKE LOWER(CONCAT('%', :query, '%')) OR "
+		+ "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) OR "
+		+ "LOWER(u.address) LIKE LOWER(CONCAT('%', :query, '%')) OR "
+		+ "LOWER(u.telephone) LIKE LOWER(CONCAT('%', :query, '%'))) "
+		+ "ORDER BY u.id")
+	List<User> queryUsersAfter(@Param("query") String query, @Param("lastId") Long lastId, Pageable pageable);
+
+	// Case-insensitive prefix lookups (lower-case prefix) that seek on the name_lower and email_lower indexes;
+	// sort by the same column and id to read them in index order
+	List<User> findByNameLowerStartingWith(String prefix, Pageable pageable);
+
+	List<User> findByEmailLowerStartingWith(String prefix, Pageable pageable);
+
 	Optional<User> findByEmail(String email);
+
+	@Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+	Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+	// Overwrite in one statement without reading the row; a null version matches any, else it must be current
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE User u SET u.name = :#{#user.name}, u.address = :#{#user.address}, u.email = :#{#user.email}, "
+		+ "u.telephone = :#{#user.telephone}, u.version = u.version + 1 "
+		+ "WHERE u.id = :id AND u.version = COALESCE(:version, u.version)")
+	int update(@Param("id") Long id, @Param("version") Long version, @Param("user") User user);
+
+	// Single statement; the affected-row count tells whether the user existed
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("DELETE FROM User u WHERE u.id = :id")
+	int deleteUserById(@Param("id") Long id);
+
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("DELETE FROM User u WHERE u.id IN :ids")
+	int deleteUsersByIdIn(@Param("ids") Collection<Long> ids);
+
+	// Cursor-backed read for exports; must be consumed inside a transaction and closed
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("SELECT u FROM User u ORDER BY u.id")
+	Stream<User> streamAllBy();
+
+	// Written once per database by the V3 migration, see UserService.storageEpoch()
+	@Query(value = "SELECT epoch FROM storage_epoch", nativeQuery = true)
+	String findStorageEpoch();
 }
@@ -7,23 +7,35 @@
  */
 package se.digg.application.service;
 
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SequenceGenerator;
 import java.text.Normalizer;
-import java.util.Random;
-import lombok.RequiredArgsConstructor;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import se.digg.application.model.User;
 import se.digg.application.repository.UserRepository;
 
 // Populate with some dummy data ~~ for demo + testing
 @Slf4j
 @Component
-@RequiredArgsConstructor
 @Order(Ordered.LOWEST_PRECEDENCE) // Run after other runners, so we never double-seed
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET) // Prevent running in @DataJpaTest
 public class MockDataService implements ApplicationRunner
@@ -35,52 +47,229 @@ public class MockDataService implements ApplicationRunner
 	private static final String[] CITIES = new String[]{"Stockholm", "Stockholm", "Stockholm", "Stockholm", "Stockholm", "Stockholm", "Göteborg", "Göteborg", "Göteborg", "Göteborg", "Malmö", "Uppsala", "Upplands", "Sollentuna", "Västerås", "Örebro", "Linköping", "Helsingborg", "Jönköping", "Lund", "Norrköping", "Umeå", "Gävle", "Södertälje", "Borås", "Växjö", "Halmstad", "Sundsvall", "Eskilstuna"};
 	private static final String[] DOMAINS = new String[]{"aol.com", "att.net", "comcast.net", "facebook.com", "gmail.com", "gmx.com", "googlemail.com", "google.com", "hotmail.com", "hotmail.co.uk", "mac.com", "me.com", "mail.com", "msn.com", "live.com", "sbcglobal.net", "verizon.net", "yahoo.com", "yahoo.co.uk", "email.com", "fastmail.fm", "games.com", "gmx.net", "hush.com", "hushmail.com", "icloud.com", "iname.com", "inbox.com", "lavabit.com", "love.com", "outlook.com", "pobox.com", "protonmail.ch", "protonmail.com", "tutanota.de", "tutanota.com", "tutamail.com", "tuta.io", "keemail.me", "rocketmail.com", "safe-mail.net", "wow.com", "ygm.com", "ymail.com", "zoho.com", "yandex.com", "bellsouth.net", "charter.net", "cox.net", "earthlink.net", "juno.com", "btinternet.com", "virginmedia.com", "blueyonder.co.uk", "freeserve.co.uk", "live.co.uk", "ntlworld.com", "o2.co.uk", "orange.net", "sky.com", "talktalk.co.uk", "tiscali.co.uk", "virgin.net", "wanadoo.co.uk", "bt.com", "sina.com", "sina.cn", "qq.com", "naver.com", "hanmail.net", "daum.net", "nate.com", "yahoo.co.jp", "yahoo.co.kr", "yahoo.co.id", "yahoo.co.in", "yahoo.com.sg", "yahoo.com.ph", "163.com", "yeah.net", "126.com", "21cn.com", "aliyun.com", "foxmail.com", "hotmail.fr", "live.fr", "laposte.net", "yahoo.fr", "wanadoo.fr", "orange.fr", "gmx.fr", "sfr.fr", "neuf.fr", "free.fr", "gmx.de", "hotmail.de", "live.de", "online.de", "t-online.de", "web.de", "yahoo.de", "libero.it", "virgilio.it", "hotmail.it", "aol.it", "tiscali.it", "alice.it", "live.it", "yahoo.it", "email.it", "tin.it", "poste.it", "teletu.it", "mail.ru", "rambler.ru", "yandex.ru", "ya.ru", "list.ru", "hotmail.be", "live.be", "skynet.be", "voo.be", "tvcablenet.be", "telenet.be", "hotmail.com.ar", "live.com.ar", "yahoo.com.ar", "fibertel.com.ar", "speedy.com.ar", "arnet.com.ar", "yahoo.com.mx", "live.com.mx", "hotmail.es", "hotmail.com.mx", "prodigy.net.mx", "yahoo.ca", "hotmail.ca", "bell.net", "shaw.ca", "sympatico.ca", "rogers.com", "yahoo.com.br", "hotmail.com.br", "outlook.com.br", "uol.com.br", "bol.com.br", "terra.com.br", "ig.com.br", "itelefonica.com.br", "r7.com", "zipmail.com.br", "globo.com", "globomail.com", "oi.com.br"};
 
+	// Simple regex for disallowed characters in local email prefix
+	private static final Pattern EMAIL_ADDRESS_DISALLOWED_CHARS = Pattern.compile("\\p{M}|[^\\w-.]");
+	// Spreads row indexes over the seed space so neighbouring rows get unrelated random streams
+	private static final long ROW_SEED_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final String INSERT_SQL = "INSERT INTO users (id, name, address, email, telephone, version) VALUES (?, ?, ?, ?, ?, 0)";
+
 	private final UserRepository userRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final EntityManagerFactory entityManagerFactory;
+	private final SequenceGenerator idSequence;
+
+	private final boolean enabled;
+	private final int entriesToGenerate;
+	private final Long seed;
+	private final int rowsPerTransaction;
+	private final int jdbcBatchSize;
 
-	private static final int ENTRIES_TO_GENERATE = 500;
+	public MockDataService(
+		UserRepository userRepository,
+		JdbcTemplate jdbcTemplate,
+		TransactionTemplate transactionTemplate,
+		EntityManagerFactory entityManagerFactory,
+		@Value("${digg.mock-data.enabled:true}") boolean enabled,
+		@Value("${digg.mock-data.count:500}") int entriesToGenerate,
+		@Value("${digg.mock-data.seed:#{null}}") Long seed,
+		@Value("${digg.mock-data.rows-per-transaction:10000}") int rowsPerTransaction,
+		@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int jdbcBatchSize)
+	{
+		this.userRepository = userRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.entityManagerFactory = entityManagerFactory;
+		try
+		{
+			this.idSequence = User.class.getDeclaredField("id").getAnnotation(SequenceGenerator.class);
+		}
+		catch (NoSuchFieldException e)
+		{
+			throw new IllegalStateException("User has no id field", e);
+		}
+		this.enabled = enabled;
+		this.entriesToGenerate = entriesToGenerate;
+		this.seed = seed;
+		this.rowsPerTransaction = rowsPerTransaction;
+		this.jdbcBatchSize = jdbcBatchSize;
+	}
 
 	@Override
 	public void run(ApplicationArguments args)
 	{
+		if (!enabled)
+		{
+			log.info("Mock data generation disabled");
+			return;
+		}
 		long existing = userRepository.count();
-		if (existing >= ENTRIES_TO_GENERATE)
+		if (existing >= entriesToGenerate)
 		{
 			log.info("Skipping mock data generation — existing users: {}", existing);
 			return;
 		}
-		generateDummyData(ENTRIES_TO_GENERATE);
+		// Only the shortfall: rows continue from the existing count, so a restart with the same seed adds new rows
+		generateDummyData((int) existing, entriesToGenerate, seed != null ? seed : ThreadLocalRandom.current().nextLong());
 	}
 
-	private void generateDummyData(int size)
+	/**
+	 * Rows are generated in parallel, a window of chunks at a time, then de-duplicated and inserted
+	 * chunk by chunk in index order. Every row draws from its own seeded random stream, so the same
+	 * seed yields the same data regardless of parallelism or chunk size.
+	 */
+	private void generateDummyData(int fromRow, int toRow, long seed)
 	{
-		Random random = new Random();
-		// Simple regex for disallowed characters in local email prefix
-		final String emailAddressCharRegex = "\\p{M}|[^\\w-.]";
+		long start = System.nanoTime();
+		int chunks = (toRow - fromRow + rowsPerTransaction - 1) / rowsPerTransaction;
+		int window = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+		Set<String> emails = new HashSet<>();
 
-		for (int i = 0; i < size; i++)
+		for (int from = 0; from < chunks; from += window)
 		{
-			String firstName = FIRSTNAMES[random.nextInt(FIRSTNAMES.length)];
-			String lastName = LASTNAMES[random.nextInt(LASTNAMES.length)];
-			String name = firstName + " " + lastName;
-
-			String street = STREETS[random.nextInt(STREETS.length)];
-			int streetNumber = random.nextInt(99) + 1;
-			String postalCode = String.format("%d", 100_00 + random.nextInt(900_00));
-			String city = CITIES[random.nextInt(CITIES.length)];
-			String address = street + " " + streetNumber + ", " + postalCode + " " + city;
-
-			// Sanitize names for email's local prefix
-			String email = Normalizer.normalize(firstName.toLowerCase() + "." + lastName.toLowerCase(), Normalizer.Form.NFD)
-				.replaceAll(emailAddressCharRegex, "") + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
-			String telephone = "070" + " xxx xx xx";
-
-			if (userRepository.findByEmail(email).isPresent())
+			List<List<User>> generated = IntStream.range(from, Math.min(from + window, chunks))
+				.parallel()
+				.mapToObj(chunk -> generateChunk(seed, fromRow + chunk * rowsPerTransaction, Math.min(toRow, fromRow + (chunk + 1) * rowsPerTransaction)))
+				.toList();
+
+			for (int c = 0; c < generated.size(); c++)
 			{
-				email = System.nanoTime() + email;
+				List<User> users = generated.get(c);
+				makeEmailsUnique(users, fromRow + (from + c) * rowsPerTransaction, emails);
+				insert(users);
 			}
-			userRepository.save(new User(name, address, email, telephone));
 		}
+		// The inserts went around Hibernate, so nothing it cached about the table can be trusted
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+		log.info("Generated {} entries of dummy data in {}ms (seed={}) - Total: {}",
+			toRow - fromRow, (System.nanoTime() - start) / 1_000_000, seed, userRepository.count());
+	}
 
-		log.info("Generated {} entries of dummy data - Total: {}", size, userRepository.count());
+	/**
+	 * Gives every user an email that is neither earlier in this run nor already stored, such as rows seeded by
+	 * an earlier start. Generated local parts never contain digits, so the row index makes a taken address
+	 * unique; a further counter covers the rare row seeded with the same index by a run with another seed.
+	 */
+	private void makeEmailsUnique(List<User> users, int firstRow, Set<String> emails)
+	{
+		Set<String> stored = userRepository.findExistingEmails(users.stream().map(User::getEmail).toList());
+		List<Renamed> renamed = new ArrayList<>();
+		for (int i = 0; i < users.size(); i++)
+		{
+			User user = users.get(i);
+			if (stored.contains(user.getEmail()) || !emails.add(user.getEmail()))
+			{
+				renamed.add(new Renamed(user, user.getEmail(), firstRow + i));
+				user.setEmail(withSuffix(user.getEmail(), String.valueOf(firstRow + i)));
+				emails.add(user.getEmail());
+			}
+		}
+
+		for (int attempt = 1; !renamed.isEmpty(); attempt++)
+		{
+			Set<String> taken = userRepository.findExistingEmails(renamed.stream().map(r -> r.user().getEmail()).toList());
+			List<Renamed> again = new ArrayList<>();
+			for (Renamed r : renamed)
+			{
+				if (taken.contains(r.user().getEmail()))
+				{
+					r.user().setEmail(withSuffix(r.original(), r.row() + "-" + attempt));
+					emails.add(r.user().getEmail());
+					again.add(r);
+				}
+			}
+			renamed = again;
+		}
+	}
+
+	private static String withSuffix(String email, String suffix)
+	{
+		int at = email.indexOf('@');
+		return email.substring(0, at) + "." + suffix + email.substring(at);
+	}
+
+	private static List<User> generateChunk(long seed, int fromRow, int toRow)
+	{
+		List<User> users = new ArrayList<>(toRow - fromRow);
+		for (int row = fromRow; row < toRow; row++)
+		{
+			users.add(generateUser(new SplittableRandom(seed ^ (row * ROW_SEED_GAMMA))));
+		}
+		return users;
+	}
+
+	private static User generateUser(SplittableRandom random)
+	{
+		String firstName = FIRSTNAMES[random.nextInt(FIRSTNAMES.length)];
+		String lastName = LASTNAMES[random.nextInt(LASTNAMES.length)];
+		String name = firstName + " " + lastName;
+
+		String street = STREETS[random.nextInt(STREETS.length)];
+		int streetNumber = random.nextInt(99) + 1;
+		int postalCode = 100_00 + random.nextInt(900_00);
+		String city = CITIES[random.nextInt(CITIES.length)];
+		String address = street + " " + streetNumber + ", " + postalCode + " " + city;
+
+		// Sanitize names for email's local prefix
+		String localPart = Normalizer.normalize(firstName.toLowerCase() + "." + lastName.toLowerCase(), Normalizer.Form.NFD);
+		String email = EMAIL_ADDRESS_DISALLOWED_CHARS.matcher(localPart).replaceAll("") + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+		String telephone = "070" + " xxx xx xx";
+
+		return new User(name, address, email, telephone);
+	}
+
+	/**
+	 * One transaction per chunk, sent as plain JDBC batches. Going around the persistence context
+	 * avoids its per-entity bookkeeping, which dominates the cost at this volume.
+	 */
+	private void insert(List<User> users)
+	{
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			long nextId = 0;
+			long lastId = -1;
+			for (User user : users)
+			{
+				if (nextId > lastId)
+				{
+					long[] block = reserveIds();
+					nextId = block[0];
+					lastId = block[1];
+				}
+				user.setId(nextId++);
+			}
+			jdbcTemplate.batchUpdate(INSERT_SQL, users, jdbcBatchSize, (ps, user) ->
+			{
+				ps.setLong(1, user.getId());
+				ps.setString(2, user.getName());
+				ps.setString(3, user.getAddress());
+				ps.setString(4, user.getEmail());
+				ps.setString(5, user.getTelephone());
+			});
+		});
+	}
+
+	/**
+	 * Claims a block of ids the same way Hibernate's pooled optimizer reads the shared sequence:
+	 * a fetched value {@code v} owns {@code (v - allocationSize, v]}, except the very first value,
+	 * which owns everything up to the following fetch. Blocks therefore never overlap ids handed out
+	 * by Hibernate for regular inserts.
+	 *
+	 * @return first and last id of the block, inclusive
+	 */
+	private long[] reserveIds()
+	{
+		String sql = "SELECT NEXT VALUE FOR " + idSequence.sequenceName();
+		long value = jdbcTemplate.queryForObject(sql, Long.class);
+		if (value == idSequence.initialValue())
+		{
+			return new long[]{value, jdbcTemplate.queryForObject(sql, Long.class)};
+		}
+		return new long[]{value - idSequence.allocationSize() + 1, value};
+	}
+
+	private record Renamed(User user, String original, int row)
+	{
 	}
 }
\ No newline at end of file
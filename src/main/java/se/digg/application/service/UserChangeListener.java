@@ -0,0 +1,43 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.Collection;
+import se.digg.application.model.User;
+
+/**
+ * Callback for in-process structures that mirror the users table.
+ * Invoked synchronously by {@link UserServiceImpl} after each successful write, once it is committed.
+ */
+public interface UserChangeListener
+{
+	void onUserCreated(User user);
+
+	void onUserUpdated(User user);
+
+	void onUserDeleted(Long id);
+
+	/**
+	 * {@code deleted} of {@code ids} were removed by one statement; which ones is not known.
+	 */
+	default void onUsersDeleted(Collection<Long> ids, int deleted)
+	{
+		ids.forEach(this::onUserDeleted);
+	}
+
+	/**
+	 * Calls for two concurrent updates of a user can arrive in the opposite order of their commits, so a
+	 * listener keeps the version it holds and drops an update that is not newer.
+	 *
+	 * @return whether {@code user} replaces the state held at {@code heldVersion}; unknown versions always do
+	 */
+	static boolean supersedes(User user, Long heldVersion)
+	{
+		return user.getVersion() == null || heldVersion == null || user.getVersion() > heldVersion;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+/**
+ * Row counts that would otherwise cost a {@code SELECT COUNT(*)} per page request.
+ * <p>
+ * The total is counted once when the application is ready and then moved by creates and deletes.
+ * Search counts are cached per (case-insensitive) query and dropped on any write.
+ */
+@Slf4j
+@Component
+public class UserCountTracker implements UserChangeListener
+{
+	private static final long UNKNOWN = -1;
+
+	private final UserRepository userRepository;
+	private final int maxCachedQueries;
+
+	private final AtomicLong total = new AtomicLong(UNKNOWN);
+	private final Map<String, Long> searchCounts = new ConcurrentHashMap<>();
+	// Bumped on every write so a count computed across a write is never cached
+	private final AtomicLong generation = new AtomicLong();
+
+	public UserCountTracker(UserRepository userRepository, @Value("${digg.search.count-cache.max-queries:1024}") int maxCachedQueries)
+	{
+		this.userRepository = userRepository;
+		this.maxCachedQueries = maxCachedQueries;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void initialize()
+	{
+		total.set(userRepository.count());
+		log.debug("Initialized user count: total={}", total.get());
+	}
+
+	/**
+	 * @return total number of users, or {@code -1} while not yet known
+	 */
+	public long total()
+	{
+		return total.get();
+	}
+
+	public long generation()
+	{
+		return generation.get();
+	}
+
+	/**
+	 * @return cached match count for the query, or {@code null}
+	 */
+	public Long searchCount(String query)
+	{
+		return searchCounts.get(key(query));
+	}
+
+	/**
+	 * Caches a match count, unless a write happened since {@code generation} was read.
+	 */
+	public void putSearchCount(String query, long count, long generation)
+	{
+		if (generation != this.generation.get())
+		{
+			return;
+		}
+		if (searchCounts.size() >= maxCachedQueries)
+		{
+			searchCounts.clear();
+		}
+		searchCounts.put(key(query), count);
+	}
+
+	@Override
+	public void onUserCreated(User user)
+	{
+		invalidate();
+		total.updateAndGet(n -> n == UNKNOWN ? UNKNOWN : n + 1);
+	}
+
+	@Override
+	public void onUserUpdated(User user)
+	{
+		invalidate();
+	}
+
+	@Override
+	public void onUserDeleted(Long id)
+	{
+		invalidate();
+		total.updateAndGet(n -> n == UNKNOWN ? UNKNOWN : Math.max(0, n - 1));
+	}
+
+	@Override
+	public void onUsersDeleted(Collection<Long> ids, int deleted)
+	{
+		invalidate();
+		total.updateAndGet(n -> n == UNKNOWN ? UNKNOWN : Math.max(0, n - deleted));
+	}
+
+	private void invalidate()
+	{
+		generation.incrementAndGet();
+		searchCounts.clear();
+	}
+
+	private static String key(String query)
+	{
+		return query.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,536 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+/**
+ * In-memory inverted index of whole words over name, email, address and telephone, ranked with BM25.
+ * <p>
+ * Text is split into lower-cased runs of letters and digits, so {@code kalle.anka@acme.org} yields
+ * {@code kalle}, {@code anka}, {@code acme} and {@code org}. A query matches users that contain every one of
+ * its words; a word counts more in the name ({@value #NAME_WEIGHT}x) and email ({@value #EMAIL_WEIGHT}x) than
+ * in the address or telephone, and rare words count more than common ones.
+ */
+@Slf4j
+@Component
+public class UserFullTextIndex implements UserChangeListener
+{
+	private static final int REBUILD_BATCH_SIZE = 10_000;
+	private static final int NAME_WEIGHT = 3;
+	private static final int EMAIL_WEIGHT = 2;
+	// BM25 term-frequency saturation and document-length normalization
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	private final UserRepository userRepository;
+	private final boolean enabled;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, Postings> postings = new HashMap<>();
+	private final Map<Long, Document> documents = new HashMap<>();
+	// Ids written while a rebuild is running; the rebuild must not overwrite them with older rows
+	private final Set<Long> touchedDuringRebuild = new HashSet<>();
+	private long totalLength;
+	private volatile boolean rebuilding;
+	private volatile boolean ready;
+
+	public UserFullTextIndex(UserRepository userRepository, @Value("${digg.search.fulltext.enabled:true}") boolean enabled)
+	{
+		this.userRepository = userRepository;
+		this.enabled = enabled;
+	}
+
+	// Run at startup by UserIndexRebuilder
+	public void rebuild()
+	{
+		if (!enabled)
+		{
+			log.info("Full-text index disabled - fulltext searches fall back to substring search");
+			return;
+		}
+
+		long start = System.nanoTime();
+		int users;
+		int words;
+		lock.writeLock().lock();
+		try
+		{
+			ready = false;
+			rebuilding = true;
+			touchedDuringRebuild.clear();
+			postings.clear();
+			documents.clear();
+			totalLength = 0;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+
+		try
+		{
+			long lastId = 0;
+			List<User> batch;
+			do
+			{
+				batch = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+				lock.writeLock().lock();
+				try
+				{
+					for (User user : batch)
+					{
+						if (!touchedDuringRebuild.contains(user.getId()))
+						{
+							index(user);
+						}
+					}
+				}
+				finally
+				{
+					lock.writeLock().unlock();
+				}
+				if (!batch.isEmpty())
+				{
+					lastId = batch.get(batch.size() - 1).getId();
+				}
+			}
+			while (batch.size() == REBUILD_BATCH_SIZE);
+		}
+		finally
+		{
+			lock.writeLock().lock();
+			try
+			{
+				rebuilding = false;
+				touchedDuringRebuild.clear();
+				ready = true;
+				users = documents.size();
+				words = postings.size();
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+		log.info("Full-text index built: users={}, words={}, took={}ms", users, words, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * @return whether {@link #search(String)} can answer queries, otherwise the caller should fall back to the database
+	 */
+	public boolean isReady()
+	{
+		return ready;
+	}
+
+	/**
+	 * Users containing every word of the query.
+	 *
+	 * @return ids of all matching users, best match first; equal scores in ascending id order
+	 */
+	public long[] search(String query)
+	{
+		return search(query, Integer.MAX_VALUE).ids();
+	}
+
+	/**
+	 * The best {@code limit} users containing every word of the query. Only those are kept while scoring, so
+	 * asking for the first pages of a common word costs far less than ranking every match.
+	 *
+	 * @return their ids, best match first with equal scores in ascending id order, and the number of matches
+	 */
+	public Ranked search(String query, int limit)
+	{
+		Set<String> words = tokenize(query == null ? "" : query).keySet();
+		if (words.isEmpty())
+		{
+			return Ranked.NONE;
+		}
+
+		lock.readLock().lock();
+		try
+		{
+			Postings[] lists = new Postings[words.size()];
+			int n = 0;
+			for (String word : words)
+			{
+				Postings list = postings.get(word);
+				if (list == null)
+				{
+					return Ranked.NONE;
+				}
+				lists[n++] = list;
+			}
+			Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+			long[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+			int count = candidates.length;
+			for (int i = 1; i < lists.length && count > 0; i++)
+			{
+				count = lists[i].retainAll(candidates, count);
+			}
+
+			int users = documents.size();
+			double averageLength = (double) totalLength / users;
+			double[] idf = new double[lists.length];
+			for (int i = 0; i < lists.length; i++)
+			{
+				idf[i] = Math.log(1 + (users - lists[i].size + 0.5) / (lists[i].size + 0.5));
+			}
+
+			TopHits top = new TopHits(Math.max(0, Math.min(limit, count)));
+			for (int c = 0; c < count; c++)
+			{
+				long id = candidates[c];
+				double norm = K1 * (1 - B + B * documents.get(id).length() / averageLength);
+				double score = 0;
+				for (int i = 0; i < lists.length; i++)
+				{
+					int frequency = lists[i].frequencyOf(id);
+					score += idf[i] * frequency * (K1 + 1) / (frequency + norm);
+				}
+				top.offer(id, score);
+			}
+			return new Ranked(top.drain(), count);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void onUserCreated(User user)
+	{
+		onUserUpdated(user);
+	}
+
+	@Override
+	public void onUserUpdated(User user)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		lock.writeLock().lock();
+		try
+		{
+			if (rebuilding)
+			{
+				touchedDuringRebuild.add(user.getId());
+			}
+			Document indexed = documents.get(user.getId());
+			if (indexed == null || UserChangeListener.supersedes(user, indexed.version()))
+			{
+				unindex(user.getId());
+				index(user);
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void onUserDeleted(Long id)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		lock.writeLock().lock();
+		try
+		{
+			if (rebuilding)
+			{
+				touchedDuringRebuild.add(id);
+			}
+			unindex(id);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Callers hold the write lock
+	private void index(User user)
+	{
+		Map<String, Integer> frequencies = new LinkedHashMap<>();
+		addWords(frequencies, user.getName(), NAME_WEIGHT);
+		addWords(frequencies, user.getEmail(), EMAIL_WEIGHT);
+		addWords(frequencies, user.getAddress(), 1);
+		addWords(frequencies, user.getTelephone(), 1);
+
+		int length = 0;
+		for (Map.Entry<String, Integer> entry : frequencies.entrySet())
+		{
+			postings.computeIfAbsent(entry.getKey(), w -> new Postings()).add(user.getId(), entry.getValue());
+			length += entry.getValue();
+		}
+		documents.put(user.getId(), new Document(frequencies.keySet().toArray(new String[0]), length, user.getVersion()));
+		totalLength += length;
+	}
+
+	// Callers hold the write lock
+	private void unindex(Long id)
+	{
+		Document document = documents.remove(id);
+		if (document == null)
+		{
+			return;
+		}
+		totalLength -= document.length();
+		for (String word : document.words())
+		{
+			Postings list = postings.get(word);
+			if (list != null && list.remove(id) && list.size == 0)
+			{
+				postings.remove(word);
+			}
+		}
+	}
+
+	private static void addWords(Map<String, Integer> frequencies, String text, int weight)
+	{
+		if (text != null)
+		{
+			tokenize(text).forEach((word, count) -> frequencies.merge(word, count * weight, Integer::sum));
+		}
+	}
+
+	/**
+	 * Splits text into lower-cased runs of letters and digits.
+	 *
+	 * @return each word with the number of times it occurs, in order of first occurrence
+	 */
+	static Map<String, Integer> tokenize(String text)
+	{
+		Map<String, Integer> words = new LinkedHashMap<>();
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++)
+		{
+			boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (wordChar && start < 0)
+			{
+				start = i;
+			}
+			else if (!wordChar && start >= 0)
+			{
+				words.merge(lower.substring(start, i), 1, Integer::sum);
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	private record Document(String[] words, int length, Long version)
+	{
+	}
+
+	/**
+	 * The best matches of a {@link #search(String, int)}, and how many users matched in all.
+	 */
+	public record Ranked(long[] ids, int matches)
+	{
+		static final Ranked NONE = new Ranked(new long[0], 0);
+	}
+
+	/**
+	 * Bounded min-heap of the best hits seen so far, worst at the root, in parallel primitive arrays.
+	 */
+	private static final class TopHits
+	{
+		private final long[] ids;
+		private final double[] scores;
+		private int size;
+
+		TopHits(int capacity)
+		{
+			ids = new long[capacity];
+			scores = new double[capacity];
+		}
+
+		void offer(long id, double score)
+		{
+			if (size < ids.length)
+			{
+				ids[size] = id;
+				scores[size] = score;
+				siftUp(size++);
+			}
+			else if (size > 0 && worse(ids[0], scores[0], id, score))
+			{
+				ids[0] = id;
+				scores[0] = score;
+				siftDown(0);
+			}
+		}
+
+		// Takes the hits out worst first, so the result comes out best first
+		long[] drain()
+		{
+			long[] ranked = new long[size];
+			while (size > 0)
+			{
+				ranked[size - 1] = ids[0];
+				size--;
+				ids[0] = ids[size];
+				scores[0] = scores[size];
+				siftDown(0);
+			}
+			return ranked;
+		}
+
+		private void siftUp(int at)
+		{
+			while (at > 0)
+			{
+				int parent = (at - 1) >>> 1;
+				if (!worse(ids[at], scores[at], ids[parent], scores[parent]))
+				{
+					return;
+				}
+				swap(at, parent);
+				at = parent;
+			}
+		}
+
+		private void siftDown(int at)
+		{
+			while (true)
+			{
+				int worst = at;
+				for (int child = 2 * at + 1; child <= 2 * at + 2 && child < size; child++)
+				{
+					if (worse(ids[child], scores[child], ids[worst], scores[worst]))
+					{
+						worst = child;
+					}
+				}
+				if (worst == at)
+				{
+					return;
+				}
+				swap(at, worst);
+				at = worst;
+			}
+		}
+
+		private void swap(int i, int j)
+		{
+			long id = ids[i];
+			ids[i] = ids[j];
+			ids[j] = id;
+			double score = scores[i];
+			scores[i] = scores[j];
+			scores[j] = score;
+		}
+
+		// Lower score, or the same score and a higher id, ranks below
+		private static boolean worse(long id, double score, long otherId, double otherScore)
+		{
+			return score < otherScore || (score == otherScore && id > otherId);
+		}
+	}
+
+	/**
+	 * Sorted user ids with the weighted number of times the word occurs for each.
+	 */
+	private static final class Postings
+	{
+		private long[] ids = new long[4];
+		private int[] frequencies = new int[4];
+		private int size;
+
+		void add(long id, int frequency)
+		{
+			int at = size > 0 && ids[size - 1] >= id ? Arrays.binarySearch(ids, 0, size, id) : -size - 1;
+			if (at >= 0)
+			{
+				frequencies[at] = frequency;
+				return;
+			}
+			at = -at - 1;
+			if (size == ids.length)
+			{
+				int capacity = size + (size >> 1) + 1;
+				ids = Arrays.copyOf(ids, capacity);
+				frequencies = Arrays.copyOf(frequencies, capacity);
+			}
+			System.arraycopy(ids, at, ids, at + 1, size - at);
+			System.arraycopy(frequencies, at, frequencies, at + 1, size - at);
+			ids[at] = id;
+			frequencies[at] = frequency;
+			size++;
+		}
+
+		boolean remove(long id)
+		{
+			int at = Arrays.binarySearch(ids, 0, size, id);
+			if (at < 0)
+			{
+				return false;
+			}
+			System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+			System.arraycopy(frequencies, at + 1, frequencies, at, size - at - 1);
+			size--;
+			return true;
+		}
+
+		int frequencyOf(long id)
+		{
+			int at = Arrays.binarySearch(ids, 0, size, id);
+			return at >= 0 ? frequencies[at] : 0;
+		}
+
+		/**
+		 * Keeps only the first {@code count} candidates that are also in this list; both are sorted.
+		 *
+		 * @return the new candidate count
+		 */
+		int retainAll(long[] candidates, int count)
+		{
+			int kept = 0;
+			int from = 0;
+			for (int i = 0; i < count && from < size; i++)
+			{
+				int at = Arrays.binarySearch(ids, from, size, candidates[i]);
+				if (at >= 0)
+				{
+					candidates[kept++] = candidates[i];
+					from = at + 1;
+				}
+				else
+				{
+					from = -at - 1;
+				}
+			}
+			return kept;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the in-memory search indexes once the application is ready, all three at the same time and off the
+ * main thread, so startup does not wait for them.
+ * <p>
+ * Until an index is built, {@link UserServiceImpl} answers its queries from the database instead.
+ */
+@Slf4j
+@Component
+public class UserIndexRebuilder
+{
+	private final UserSearchIndex searchIndex;
+	private final UserFullTextIndex fullTextIndex;
+	private final UserSuggestIndex suggestIndex;
+	private final ExecutorService executor;
+	private final CompletableFuture<Void> rebuilt = new CompletableFuture<>();
+
+	public UserIndexRebuilder(UserSearchIndex searchIndex, UserFullTextIndex fullTextIndex, UserSuggestIndex suggestIndex)
+	{
+		this.searchIndex = searchIndex;
+		this.fullTextIndex = fullTextIndex;
+		this.suggestIndex = suggestIndex;
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(3, r ->
+		{
+			Thread thread = new Thread(r, "index-rebuild-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildAll()
+	{
+		long start = System.nanoTime();
+		CompletableFuture.allOf(
+				CompletableFuture.runAsync(searchIndex::rebuild, executor),
+				CompletableFuture.runAsync(fullTextIndex::rebuild, executor),
+				CompletableFuture.runAsync(suggestIndex::rebuild, executor))
+			.whenComplete((result, failure) ->
+			{
+				if (failure != null)
+				{
+					log.error("Index rebuild failed", failure);
+					rebuilt.completeExceptionally(failure);
+				}
+				else
+				{
+					log.info("Indexes built: took={}ms", (System.nanoTime() - start) / 1_000_000);
+					rebuilt.complete(null);
+				}
+			});
+	}
+
+	/**
+	 * @return completes once the indexes are built after startup
+	 */
+	public CompletableFuture<Void> rebuilt()
+	{
+		return rebuilt;
+	}
+
+	// A rebuild still running would read from a data source that is about to close
+	@PreDestroy
+	public void shutdown() throws InterruptedException
+	{
+		executor.shutdown();
+		if (!executor.awaitTermination(30, TimeUnit.SECONDS))
+		{
+			log.warn("Index rebuild still running at shutdown");
+			executor.shutdownNow();
+		}
+	}
+}
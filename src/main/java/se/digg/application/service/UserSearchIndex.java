@@ -0,0 +1,372 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+/**
+ * In-memory trigram inverted index over name, email, address and telephone.
+ * <p>
+ * A substring query of three or more characters is answered by intersecting the posting lists of its
+ * trigrams (smallest first) and verifying the few remaining candidates, so the cost follows the rarest
+ * trigram rather than the table size. Shorter queries are left to the database.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex implements UserChangeListener
+{
+	private static final int GRAM = 3;
+	private static final int REBUILD_BATCH_SIZE = 10_000;
+	// Keeps trigrams from spanning two fields; never part of a query
+	private static final char FIELD_SEPARATOR = '\u0000';
+
+	private final UserRepository userRepository;
+	private final boolean enabled;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, PostingList> postings = new HashMap<>();
+	private final Map<Long, Document> documents = new HashMap<>();
+	// Ids written while a rebuild is running; the rebuild must not overwrite them with older rows
+	private final Set<Long> touchedDuringRebuild = new HashSet<>();
+	private volatile boolean rebuilding;
+	private volatile boolean ready;
+
+	public UserSearchIndex(UserRepository userRepository, @Value("${digg.search.index.enabled:true}") boolean enabled)
+	{
+		this.userRepository = userRepository;
+		this.enabled = enabled;
+	}
+
+	// Run at startup by UserIndexRebuilder
+	public void rebuild()
+	{
+		if (!enabled)
+		{
+			log.info("Search index disabled - queries go to the database");
+			return;
+		}
+
+		long start = System.nanoTime();
+		int users;
+		int trigrams;
+		lock.writeLock().lock();
+		try
+		{
+			ready = false;
+			rebuilding = true;
+			touchedDuringRebuild.clear();
+			postings.clear();
+			documents.clear();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+
+		try
+		{
+			long lastId = 0;
+			List<User> batch;
+			do
+			{
+				batch = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+				lock.writeLock().lock();
+				try
+				{
+					for (User user : batch)
+					{
+						if (!touchedDuringRebuild.contains(user.getId()))
+						{
+							index(user);
+						}
+					}
+				}
+				finally
+				{
+					lock.writeLock().unlock();
+				}
+				if (!batch.isEmpty())
+				{
+					lastId = batch.get(batch.size() - 1).getId();
+				}
+			}
+			while (batch.size() == REBUILD_BATCH_SIZE);
+		}
+		finally
+		{
+			lock.writeLock().lock();
+			try
+			{
+				rebuilding = false;
+				touchedDuringRebuild.clear();
+				ready = true;
+				users = documents.size();
+				trigrams = postings.size();
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+		log.info("Search index built: users={}, trigrams={}, took={}ms", users, trigrams, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * @return whether {@link #search(String)} can answer this query, otherwise the caller should fall back to the database
+	 */
+	public boolean canAnswer(String query)
+	{
+		return ready && query != null && query.length() >= GRAM;
+	}
+
+	/**
+	 * Case-insensitive substring match over the indexed fields.
+	 *
+	 * @return ids of all matching users in ascending order
+	 */
+	public long[] search(String query)
+	{
+		String needle = query.toLowerCase(Locale.ROOT);
+		long[] grams = grams(needle);
+
+		lock.readLock().lock();
+		try
+		{
+			PostingList[] lists = new PostingList[grams.length];
+			for (int i = 0; i < grams.length; i++)
+			{
+				PostingList list = postings.get(grams[i]);
+				if (list == null)
+				{
+					return new long[0];
+				}
+				lists[i] = list;
+			}
+			Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+			long[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+			int count = candidates.length;
+			for (int i = 1; i < lists.length && count > 0; i++)
+			{
+				count = lists[i].retainAll(candidates, count);
+			}
+
+			// Trigrams may all be present without being adjacent, so confirm the actual substring
+			int matches = 0;
+			for (int i = 0; i < count; i++)
+			{
+				if (documents.get(candidates[i]).text().contains(needle))
+				{
+					candidates[matches++] = candidates[i];
+				}
+			}
+			return Arrays.copyOf(candidates, matches);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void onUserCreated(User user)
+	{
+		onUserUpdated(user);
+	}
+
+	@Override
+	public void onUserUpdated(User user)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		lock.writeLock().lock();
+		try
+		{
+			if (rebuilding)
+			{
+				touchedDuringRebuild.add(user.getId());
+			}
+			Document indexed = documents.get(user.getId());
+			if (indexed == null || UserChangeListener.supersedes(user, indexed.version()))
+			{
+				unindex(user.getId());
+				index(user);
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void onUserDeleted(Long id)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		lock.writeLock().lock();
+		try
+		{
+			if (rebuilding)
+			{
+				touchedDuringRebuild.add(id);
+			}
+			unindex(id);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Callers hold the write lock
+	private void index(User user)
+	{
+		String document = String.join(String.valueOf(FIELD_SEPARATOR),
+			lower(user.getName()), lower(user.getEmail()), lower(user.getAddress()), lower(user.getTelephone()));
+		documents.put(user.getId(), new Document(document, user.getVersion()));
+		for (long gram : grams(document))
+		{
+			postings.computeIfAbsent(gram, g -> new PostingList()).add(user.getId());
+		}
+	}
+
+	// Callers hold the write lock
+	private void unindex(Long id)
+	{
+		Document document = documents.remove(id);
+		if (document == null)
+		{
+			return;
+		}
+		for (long gram : grams(document.text()))
+		{
+			PostingList list = postings.get(gram);
+			if (list != null && list.remove(id) && list.size == 0)
+			{
+				postings.remove(gram);
+			}
+		}
+	}
+
+	private static String lower(String value)
+	{
+		return value == null ? "" : value.toLowerCase(Locale.ROOT);
+	}
+
+	// Distinct trigrams, each packed as three 16-bit chars
+	private static long[] grams(String text)
+	{
+		if (text.length() < GRAM)
+		{
+			return new long[0];
+		}
+		long[] grams = new long[text.length() - GRAM + 1];
+		for (int i = 0; i < grams.length; i++)
+		{
+			grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+		}
+		return Arrays.stream(grams).distinct().toArray();
+	}
+
+	// The user's fields, lower-cased and joined by FIELD_SEPARATOR
+	private record Document(String text, Long version)
+	{
+	}
+
+	/**
+	 * Sorted, growable array of user ids. Ids are mostly appended in ascending order,
+	 * so inserts are usually O(1) and the lists stay compact compared to boxed sets.
+	 */
+	private static final class PostingList
+	{
+		private long[] ids = new long[4];
+		private int size;
+
+		void add(long id)
+		{
+			if (size > 0 && ids[size - 1] >= id)
+			{
+				int at = Arrays.binarySearch(ids, 0, size, id);
+				if (at >= 0)
+				{
+					return;
+				}
+				insertAt(-at - 1, id);
+				return;
+			}
+			insertAt(size, id);
+		}
+
+		boolean remove(long id)
+		{
+			int at = Arrays.binarySearch(ids, 0, size, id);
+			if (at < 0)
+			{
+				return false;
+			}
+			System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+			size--;
+			return true;
+		}
+
+		/**
+		 * Keeps only the first {@code count} candidates that are also in this list; both are sorted.
+		 *
+		 * @return the new candidate count
+		 */
+		int retainAll(long[] candidates, int count)
+		{
+			int kept = 0;
+			int from = 0;
+			for (int i = 0; i < count && from < size; i++)
+			{
+				int at = Arrays.binarySearch(ids, from, size, candidates[i]);
+				if (at >= 0)
+				{
+					candidates[kept++] = candidates[i];
+					from = at + 1;
+				}
+				else
+				{
+					from = -at - 1;
+				}
+			}
+			return kept;
+		}
+
+		private void insertAt(int at, long id)
+		{
+			if (size == ids.length)
+			{
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			System.arraycopy(ids, at, ids, at + 1, size - at);
+			ids[at] = id;
+			size++;
+		}
+	}
+}
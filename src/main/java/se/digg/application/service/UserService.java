@@ -7,10 +7,15 @@
  */
 package se.digg.application.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import se.digg.application.api.BulkItemResult;
+import se.digg.application.api.Suggestion;
 import se.digg.application.model.User;
 
 public interface UserService
@@ -19,13 +24,57 @@ public interface UserService
 
 	List<User> getAllUsers();
 
+	long exportUsers(Consumer<User> sink);
+
 	Page<User> queryUsers(String query, Pageable pageable);
 
+	Slice<User> getUsersSlice(Pageable pageable);
+
+	Slice<User> queryUsersSlice(String query, Pageable pageable);
+
+	/**
+	 * Users containing every word of the query, best match first; the pageable's sort is ignored.
+	 * Falls back to {@link #queryUsers} while the full-text index is unavailable.
+	 */
+	Page<User> searchUsers(String query, Pageable pageable);
+
+	/**
+	 * Typeahead completions of names, words in names and emails starting with the prefix, case-insensitively.
+	 * Until the suggest index is built, whole names and emails only, looked up in the database.
+	 */
+	List<Suggestion> suggestUsers(String prefix, int limit);
+
+	Slice<User> getUsersAfter(long lastId, int size);
+
+	Slice<User> queryUsersAfter(String query, long lastId, int size);
+
 	Optional<User> getUserById(Long id);
 
+	/**
+	 * @return identifies the database the users are stored in; user versions are only comparable within one
+	 */
+	String storageEpoch();
+
 	User createUser(User user);
 
+	List<BulkItemResult> createUsers(List<User> users);
+
 	Optional<User> updateUser(Long id, User user);
 
+	/**
+	 * Updates the user only if it is still at {@code expectedVersion}.
+	 *
+	 * @return the updated user, or empty if there is no user with the id
+	 * @throws org.springframework.dao.OptimisticLockingFailureException if the user is at another version
+	 */
+	Optional<User> updateUser(Long id, User user, long expectedVersion);
+
 	boolean deleteUser(Long id);
+
+	/**
+	 * Deletes all given users in one statement; unknown ids are ignored.
+	 *
+	 * @return number of users deleted
+	 */
+	int deleteUsers(Collection<Long> ids);
 }
@@ -7,12 +7,45 @@
  */
 package se.digg.application.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.digg.application.api.BulkItemResult;
+import se.digg.application.api.Suggestion;
+import se.digg.application.config.CacheConfig;
 import se.digg.application.model.User;
 import se.digg.application.repository.UserRepository;
 
@@ -21,39 +54,221 @@ import se.digg.application.repository.UserRepository;
 public class UserServiceImpl implements UserService
 {
 	private final UserRepository userRepository;
+	private final UserSearchIndex searchIndex;
+	private final UserFullTextIndex fullTextIndex;
+	private final UserSuggestIndex suggestIndex;
+	private final UserCountTracker countTracker;
+	private final List<UserChangeListener> changeListeners;
+	private final Validator validator;
+	private final TransactionTemplate transactionTemplate;
 
-	public UserServiceImpl(UserRepository userRepository)
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+	private int batchSize;
+
+	// Read on first use; fixed for the lifetime of the database
+	private volatile String storageEpoch;
+
+	public UserServiceImpl(UserRepository userRepository, UserSearchIndex searchIndex, UserFullTextIndex fullTextIndex,
+		UserSuggestIndex suggestIndex, UserCountTracker countTracker, List<UserChangeListener> changeListeners, Validator validator,
+		TransactionTemplate transactionTemplate)
 	{
 		this.userRepository = userRepository;
+		this.searchIndex = searchIndex;
+		this.fullTextIndex = fullTextIndex;
+		this.suggestIndex = suggestIndex;
+		this.countTracker = countTracker;
+		this.changeListeners = changeListeners;
+		this.validator = validator;
+		this.transactionTemplate = transactionTemplate;
 	}
 
 	@Override
 	public User createUser(User user)
 	{
-		log.debug("Creating new user: User={}", user);
-		return userRepository.save(user);
+		log.debug("Creating new user");
+		// A client-supplied version would make Spring Data treat the user as existing
+		user.setVersion(null);
+		User created = userRepository.save(user);
+		changeListeners.forEach(l -> l.onUserCreated(created));
+		return created;
+	}
+
+	/**
+	 * Validates and inserts many users in one transaction, flushing every {@code batch_size} rows so
+	 * Hibernate sends them as JDBC batches. Invalid items and emails that already exist (in the table or
+	 * earlier in the same request) are reported and skipped instead of failing the whole request.
+	 *
+	 * <p>
+	 * An email committed by a concurrent request between the existence check and the insert fails the flush
+	 * and rolls the batch back; it is then checked and inserted once more, so that email is reported as
+	 * existing. Should that happen again the exception propagates and nothing is created. Listeners are told
+	 * about the created users only once they are committed.
+	 *
+	 * @return one result per input element, in input order
+	 */
+	@Override
+	public List<BulkItemResult> createUsers(List<User> users)
+	{
+		log.debug("Bulk creating users: count={}", users.size());
+		List<User> created = new ArrayList<>();
+		List<BulkItemResult> results;
+		try
+		{
+			results = transactionTemplate.execute(status -> insertUsers(users, created));
+		}
+		catch (DataIntegrityViolationException e)
+		{
+			log.debug("Bulk create collided with a concurrent insert, retrying: {}", e.getMessage());
+			created.clear();
+			results = transactionTemplate.execute(status -> insertUsers(users, created));
+		}
+		created.forEach(u -> changeListeners.forEach(l -> l.onUserCreated(u)));
+		log.debug("Bulk created users: created={}, rejected={}", created.size(), users.size() - created.size());
+		return results;
+	}
+
+	// One attempt at createUsers, within a transaction; adds the inserted users to created
+	private List<BulkItemResult> insertUsers(List<User> users, List<User> created)
+	{
+		BulkItemResult[] results = new BulkItemResult[users.size()];
+		Map<String, Integer> accepted = new HashMap<>();
+		for (int i = 0; i < users.size(); i++)
+		{
+			User user = users.get(i);
+			if (user == null)
+			{
+				results[i] = BulkItemResult.rejected(i, BulkItemResult.Status.INVALID, List.of("user: must not be null"));
+				continue;
+			}
+			Set<ConstraintViolation<User>> violations = validator.validate(user);
+			if (!violations.isEmpty())
+			{
+				results[i] = BulkItemResult.rejected(i, BulkItemResult.Status.INVALID, violations.stream()
+					.map(v -> v.getPropertyPath() + ": " + v.getMessage())
+					.sorted()
+					.toList());
+			}
+			else if (accepted.putIfAbsent(user.getEmail(), i) != null)
+			{
+				results[i] = BulkItemResult.rejected(i, BulkItemResult.Status.DUPLICATE, List.of("email: duplicated within request"));
+			}
+		}
+
+		// One query for all candidate emails instead of a lookup per row
+		if (!accepted.isEmpty())
+		{
+			for (String email : userRepository.findExistingEmails(accepted.keySet()))
+			{
+				int i = accepted.remove(email);
+				results[i] = BulkItemResult.rejected(i, BulkItemResult.Status.DUPLICATE, List.of("email: already exists"));
+			}
+		}
+
+		for (int i = 0; i < users.size(); i++)
+		{
+			if (results[i] != null)
+			{
+				continue;
+			}
+			User user = users.get(i);
+			user.setId(null);
+			user.setVersion(null);
+			entityManager.persist(user);
+			created.add(user);
+			// Flushed through the repository so a constraint violation surfaces as DataIntegrityViolationException
+			if (created.size() % batchSize == 0)
+			{
+				userRepository.flush();
+				entityManager.clear();
+			}
+		}
+		userRepository.flush();
+		entityManager.clear();
+
+		int next = 0;
+		for (int i = 0; i < results.length; i++)
+		{
+			if (results[i] == null)
+			{
+				results[i] = BulkItemResult.created(i, created.get(next++).getId());
+			}
+		}
+		return Arrays.asList(results);
 	}
 
 	@Override
+	@Cacheable(cacheNames = CacheConfig.USERS_CACHE, unless = "#result == null")
 	public Optional<User> getUserById(Long id)
 	{
 		log.debug("Fetching user with ID: id={}", id);
 		return userRepository.findById(id);
 	}
 
+	@Override
+	public String storageEpoch()
+	{
+		String epoch = storageEpoch;
+		if (epoch == null)
+		{
+			epoch = userRepository.findStorageEpoch();
+			storageEpoch = epoch;
+		}
+		return epoch;
+	}
+
 	@Override
 	public Page<User> getUsers(Pageable pageable)
 	{
 		log.debug("Fetching paged users: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+		long total = countTracker.total();
+		if (total >= 0)
+		{
+			return new PageImpl<>(userRepository.findAllBy(pageable), pageable, total);
+		}
 		return userRepository.findAll(pageable);
 	}
 
+	@Override
+	public Slice<User> getUsersSlice(Pageable pageable)
+	{
+		log.debug("Fetching sliced users: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+		return userRepository.findSliceBy(pageable);
+	}
+
 	public List<User> getAllUsers()
 	{
 		log.debug("Fetching all users");
 		return userRepository.findAll();
 	}
 
+	/**
+	 * Streams every user, in id order, to the sink without materializing the table.
+	 * Rows are detached once handed over, so the persistence context stays empty.
+	 *
+	 * @return number of users written
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long exportUsers(Consumer<User> sink)
+	{
+		log.debug("Exporting all users");
+		long count = 0;
+		try (Stream<User> users = userRepository.streamAllBy())
+		{
+			for (User user : (Iterable<User>) users::iterator)
+			{
+				sink.accept(user);
+				entityManager.detach(user);
+				count++;
+			}
+		}
+		log.debug("Exported users: count={}", count);
+		return count;
+	}
+
 	@Override
 	public Page<User> queryUsers(String query, Pageable pageable)
 	{
@@ -61,38 +276,223 @@ public class UserServiceImpl implements UserService
 		// Allow whitespace queries
 		if (query == null || query.isEmpty())
 		{
-			return userRepository.findAll(pageable);
+			return getUsers(pageable);
+		}
+
+		// The index keeps its own (id) order, so sorted requests stay on the database
+		if (searchIndex.canAnswer(query) && pageable.getSort().isUnsorted())
+		{
+			long[] ids = searchIndex.search(query);
+			int from = (int) Math.min(pageable.getOffset(), ids.length);
+			int to = Math.min(from + pageable.getPageSize(), ids.length);
+			return new PageImpl<>(findAllInOrder(ids, from, to), pageable, ids.length);
+		}
+
+		Long cachedCount = countTracker.searchCount(query);
+		if (cachedCount != null)
+		{
+			return new PageImpl<>(userRepository.queryUsersSlice(query, pageable).getContent(), pageable, cachedCount);
+		}
+		long generation = countTracker.generation();
+		Page<User> page = userRepository.queryUsers(query, pageable);
+		countTracker.putSearchCount(query, page.getTotalElements(), generation);
+		return page;
+	}
+
+	@Override
+	public Slice<User> queryUsersSlice(String query, Pageable pageable)
+	{
+		log.debug("Querying for '{}' without count", query);
+		if (query == null || query.isEmpty())
+		{
+			return getUsersSlice(pageable);
 		}
 
-		return userRepository.queryUsers(query, pageable);
+		if (searchIndex.canAnswer(query) && pageable.getSort().isUnsorted())
+		{
+			long[] ids = searchIndex.search(query);
+			int from = (int) Math.min(pageable.getOffset(), ids.length);
+			int to = Math.min(from + pageable.getPageSize(), ids.length);
+			return new SliceImpl<>(findAllInOrder(ids, from, to), pageable, to < ids.length);
+		}
+
+		return userRepository.queryUsersSlice(query, pageable);
+	}
+
+	@Override
+	public Page<User> searchUsers(String query, Pageable pageable)
+	{
+		log.debug("Full-text search for '{}'", query);
+		if (!fullTextIndex.isReady())
+		{
+			return queryUsers(query, pageable);
+		}
+
+		// Only the matches up to the end of the requested page are ranked
+		int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+		UserFullTextIndex.Ranked ranked = fullTextIndex.search(query, limit);
+		long[] ids = ranked.ids();
+		int from = (int) Math.min(pageable.getOffset(), ids.length);
+		return new PageImpl<>(findAllInOrder(ids, from, ids.length), pageable, ranked.matches());
+	}
+
+	@Override
+	public List<Suggestion> suggestUsers(String prefix, int limit)
+	{
+		if (!suggestIndex.isReady())
+		{
+			return suggestFromDatabase(prefix, limit);
+		}
+		return suggestIndex.suggest(prefix, limit);
+	}
+
+	// Two index seeks on name_lower and email_lower, merged in the suggest index's order. A later word of a
+	// name is not matched: that would take a scan, so "ank" finds "Kalle Anka" only once the index is ready
+	private List<Suggestion> suggestFromDatabase(String prefix, int limit)
+	{
+		String key = prefix == null ? "" : prefix.strip().toLowerCase(Locale.ROOT);
+		if (key.isEmpty() || limit <= 0)
+		{
+			return new ArrayList<>();
+		}
+
+		List<Suggestion> suggestions = new ArrayList<>(2 * limit);
+		for (User user : userRepository.findByNameLowerStartingWith(key, PageRequest.of(0, limit, Sort.by("nameLower", "id"))))
+		{
+			suggestions.add(new Suggestion(user.getId(), Suggestion.Field.NAME, user.getName()));
+		}
+		for (User user : userRepository.findByEmailLowerStartingWith(key, PageRequest.of(0, limit, Sort.by("emailLower", "id"))))
+		{
+			suggestions.add(new Suggestion(user.getId(), Suggestion.Field.EMAIL, user.getEmail()));
+		}
+		suggestions.sort(Comparator.comparing((Suggestion s) -> s.getValue().toLowerCase(Locale.ROOT))
+			.thenComparingLong(Suggestion::getId)
+			.thenComparing(Suggestion::getField));
+		return new ArrayList<>(suggestions.subList(0, Math.min(limit, suggestions.size())));
+	}
+
+	@Override
+	public Slice<User> getUsersAfter(long lastId, int size)
+	{
+		log.debug("Fetching users after cursor: lastId={}, size={}", lastId, size);
+		// Fetch one extra row to learn whether another page exists, without counting
+		List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, size + 1));
+		return toSlice(users, size);
+	}
+
+	@Override
+	public Slice<User> queryUsersAfter(String query, long lastId, int size)
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Querying for '{}' after cursor: lastId={}, size={}", query, lastId, size);
+		}
+		if (query == null || query.isEmpty())
+		{
+			return getUsersAfter(lastId, size);
+		}
+
+		if (searchIndex.canAnswer(query))
+		{
+			long[] ids = searchIndex.search(query);
+			int at = Arrays.binarySearch(ids, lastId);
+			int from = at >= 0 ? at + 1 : -at - 1;
+			int to = (int) Math.min((long) from + size + 1, ids.length);
+			return toSlice(findAllInOrder(ids, from, to), size);
+		}
+
+		List<User> users = userRepository.queryUsersAfter(query, lastId, PageRequest.of(0, size + 1));
+		return toSlice(users, size);
+	}
+
+	// Loads ids[from, to) in that order; rows deleted since the index lookup are skipped
+	private List<User> findAllInOrder(long[] ids, int from, int to)
+	{
+		List<Long> pageIds = Arrays.stream(ids, from, to).boxed().toList();
+		Map<Long, User> byId = userRepository.findAllById(pageIds).stream()
+			.collect(Collectors.toMap(User::getId, Function.identity()));
+		return pageIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+	}
+
+	private static Slice<User> toSlice(List<User> users, int size)
+	{
+		boolean hasNext = users.size() > size;
+		List<User> content = hasNext ? users.subList(0, size) : users;
+		return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
 	}
 
+	// Evicted rather than put: the put would land after the commit, possibly after that of a later concurrent
+	// update, and pin the older user (and its ETag) in the cache until it expires
 	@Override
+	@CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
 	public Optional<User> updateUser(Long id, User user)
 	{
 		log.debug("Updating user with ID: id={}", id);
+		if (userRepository.update(id, null, user) == 0)
+		{
+			return Optional.empty();
+		}
+		// Without an expected version the new one is unknown, so read the row back for the response
+		Optional<User> saved = userRepository.findById(id);
+		saved.ifPresent(u -> changeListeners.forEach(l -> l.onUserUpdated(u)));
+		log.debug("User updated");
+		return saved;
+	}
 
-		return userRepository.findById(id)
-			.map(u ->
+	// Evicted for the same reason as above
+	@Override
+	@CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
+	public Optional<User> updateUser(Long id, User user, long expectedVersion)
+	{
+		log.debug("Updating user with ID: id={}, version={}", id, expectedVersion);
+		if (userRepository.update(id, expectedVersion, user) == 0)
+		{
+			// Only a failed update reads, to tell a missing user from a stale version
+			if (!userRepository.existsById(id))
 			{
-				u.setName(user.getName());
-				u.setEmail(user.getEmail());
-				u.setAddress(user.getAddress());
-				u.setTelephone(user.getTelephone());
-				log.debug("User updated");
-				return userRepository.save(u);
-			});
+				return Optional.empty();
+			}
+			throw new OptimisticLockingFailureException("User " + id + " is no longer at version " + expectedVersion);
+		}
+		// Every column was just written, so the new state is known without reading it back
+		User saved = new User(id, user.getName(), user.getAddress(), user.getEmail(), user.getTelephone());
+		saved.setVersion(expectedVersion + 1);
+		changeListeners.forEach(l -> l.onUserUpdated(saved));
+		log.debug("User updated");
+		return Optional.of(saved);
 	}
 
 	@Override
+	@CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
 	public boolean deleteUser(Long id)
 	{
 		log.debug("Attempting to delete user with ID: id={}", id);
-		if (userRepository.existsById(id))
+		if (userRepository.deleteUserById(id) == 0)
+		{
+			return false;
+		}
+		changeListeners.forEach(l -> l.onUserDeleted(id));
+		return true;
+	}
+
+	// Which of the ids existed is not known afterwards, so the whole cache goes rather than a lookup per id
+	@Override
+	@CacheEvict(cacheNames = CacheConfig.USERS_CACHE, allEntries = true)
+	public int deleteUsers(Collection<Long> ids)
+	{
+		Set<Long> unique = new LinkedHashSet<>(ids);
+		unique.remove(null);
+		log.debug("Bulk deleting users: count={}", unique.size());
+		if (unique.isEmpty())
+		{
+			return 0;
+		}
+		int deleted = userRepository.deleteUsersByIdIn(unique);
+		if (deleted > 0)
 		{
-			userRepository.deleteById(id);
-			return true;
+			changeListeners.forEach(l -> l.onUsersDeleted(unique, deleted));
 		}
-		return false;
+		log.debug("Bulk deleted users: requested={}, deleted={}", unique.size(), deleted);
+		return deleted;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,637 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import se.digg.application.api.Suggestion;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+/**
+ * Sorted in-memory index of names and emails for typeahead.
+ * <p>
+ * Besides the whole name, every later word of it is a key of its own, so {@code "ank"} completes
+ * {@code "Kalle Anka"}. A key is not a string of its own but a position in the user's name or email, packed
+ * with the user's slot into one {@code long} of a sorted array and compared case-insensitively char by char,
+ * so a user costs its two strings and a few primitives.
+ * <p>
+ * Lookups binary-search the sorted keys and read on in order without locking. Writes go to a small overlay
+ * that shadows the user's older keys and is merged into the main arrays once it holds {@value #MAX_OVERLAY}
+ * changes; every write publishes a new immutable snapshot.
+ */
+@Slf4j
+@Component
+public class UserSuggestIndex implements UserChangeListener
+{
+	private static final int REBUILD_BATCH_SIZE = 10_000;
+	static final int MAX_OVERLAY = 1024;
+
+	private final UserRepository userRepository;
+
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
+	// Guarded by this, as are writes to snapshot
+	private final Set<Long> touchedDuringRebuild = new HashSet<>();
+	private boolean rebuilding;
+	private volatile boolean ready;
+
+	public UserSuggestIndex(UserRepository userRepository)
+	{
+		this.userRepository = userRepository;
+	}
+
+	// Run at startup by UserIndexRebuilder
+	public void rebuild()
+	{
+		long start = System.nanoTime();
+		synchronized (this)
+		{
+			rebuilding = true;
+			touchedDuringRebuild.clear();
+			snapshot = Snapshot.EMPTY;
+		}
+
+		Rows rows = new Rows();
+		try
+		{
+			long lastId = 0;
+			List<User> batch;
+			do
+			{
+				batch = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+				batch.forEach(rows::add);
+				if (!batch.isEmpty())
+				{
+					lastId = batch.get(batch.size() - 1).getId();
+				}
+			}
+			while (batch.size() == REBUILD_BATCH_SIZE);
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				// Users written meanwhile are in the overlay already, newer than what was read
+				publish(new Snapshot(rows.toSegment(touchedDuringRebuild), snapshot.overlay(), new long[0]));
+				rebuilding = false;
+				touchedDuringRebuild.clear();
+				ready = true;
+			}
+		}
+		log.info("Suggest index built: keys={}, took={}ms", snapshot.base().keys.length, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * @return whether the first rebuild has finished; until then {@link #suggest} misses users not read yet
+	 */
+	public boolean isReady()
+	{
+		return ready;
+	}
+
+	/**
+	 * Case-insensitive prefix match on names, words of names and emails.
+	 *
+	 * @return up to {@code limit} completions in alphabetical order of the matched key, one per user and field
+	 */
+	public List<Suggestion> suggest(String prefix, int limit)
+	{
+		char[] key = fold(prefix == null ? "" : prefix.strip());
+		List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+		if (key.length == 0 || limit <= 0)
+		{
+			return suggestions;
+		}
+
+		Snapshot current = snapshot;
+		Segment base = current.base();
+		Segment overlay = current.overlay();
+		int i = base.lowerBound(key);
+		int j = overlay.lowerBound(key);
+		while (suggestions.size() < limit)
+		{
+			while (i < base.keys.length && base.startsWith(i, key) && current.shadows(base.id(i)))
+			{
+				i++;
+			}
+			boolean inBase = i < base.keys.length && base.startsWith(i, key);
+			boolean inOverlay = j < overlay.keys.length && overlay.startsWith(j, key);
+			if (!inBase && !inOverlay)
+			{
+				break;
+			}
+			Segment segment;
+			int k;
+			if (inBase && (!inOverlay || Segment.compare(base, base.keys[i], overlay, overlay.keys[j]) < 0))
+			{
+				segment = base;
+				k = i++;
+			}
+			else
+			{
+				segment = overlay;
+				k = j++;
+			}
+			// A name can match both as a whole and by one of its words
+			Suggestion suggestion = segment.suggestion(k);
+			if (!contains(suggestions, suggestion))
+			{
+				suggestions.add(suggestion);
+			}
+		}
+		return suggestions;
+	}
+
+	private static boolean contains(List<Suggestion> suggestions, Suggestion candidate)
+	{
+		for (Suggestion suggestion : suggestions)
+		{
+			if (suggestion.getId() == candidate.getId() && suggestion.getField() == candidate.getField())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void onUserCreated(User user)
+	{
+		onUserUpdated(user);
+	}
+
+	@Override
+	public synchronized void onUserUpdated(User user)
+	{
+		if (rebuilding)
+		{
+			touchedDuringRebuild.add(user.getId());
+		}
+		if (UserChangeListener.supersedes(user, snapshot.version(user.getId())))
+		{
+			publish(snapshot.with(user.getId(), user.getVersion(), user.getName(), user.getEmail()));
+		}
+	}
+
+	@Override
+	public synchronized void onUserDeleted(Long id)
+	{
+		if (rebuilding)
+		{
+			touchedDuringRebuild.add(id);
+		}
+		publish(snapshot.without(id));
+	}
+
+	// Callers hold the monitor
+	private void publish(Snapshot next)
+	{
+		snapshot = next.overlay().ids.length + next.shadowed().length > MAX_OVERLAY ? next.merged() : next;
+	}
+
+	private static char[] fold(String text)
+	{
+		char[] folded = new char[text.length()];
+		for (int i = 0; i < folded.length; i++)
+		{
+			folded[i] = Character.toLowerCase(text.charAt(i));
+		}
+		return folded;
+	}
+
+	/**
+	 * Main arrays, an overlay of users written since they were built, and the sorted ids of users in the main
+	 * arrays whose keys there are outdated, because the overlay holds them or they were deleted.
+	 */
+	private record Snapshot(Segment base, Segment overlay, long[] shadowed)
+	{
+		static final Snapshot EMPTY = new Snapshot(Segment.EMPTY, Segment.EMPTY, new long[0]);
+
+		boolean shadows(long id)
+		{
+			return Arrays.binarySearch(shadowed, id) >= 0;
+		}
+
+		// Of the user as indexed, null if not indexed or unknown
+		Long version(long id)
+		{
+			int slot = overlay.slot(id);
+			if (slot >= 0)
+			{
+				return overlay.version(slot);
+			}
+			slot = base.slot(id);
+			return slot < 0 || shadows(id) ? null : base.version(slot);
+		}
+
+		Snapshot with(long id, Long version, String name, String email)
+		{
+			return new Snapshot(base, overlay.with(id, version, name, email), shadow(id));
+		}
+
+		Snapshot without(long id)
+		{
+			return new Snapshot(base, overlay.without(id), shadow(id));
+		}
+
+		private long[] shadow(long id)
+		{
+			int at = Arrays.binarySearch(shadowed, id);
+			if (at >= 0 || base.slot(id) < 0)
+			{
+				return shadowed;
+			}
+			at = -at - 1;
+			long[] next = new long[shadowed.length + 1];
+			System.arraycopy(shadowed, 0, next, 0, at);
+			next[at] = id;
+			System.arraycopy(shadowed, at, next, at + 1, shadowed.length - at);
+			return next;
+		}
+
+		Snapshot merged()
+		{
+			return new Snapshot(Segment.merge(base, shadowed, overlay), Segment.EMPTY, new long[0]);
+		}
+	}
+
+	/**
+	 * Users in id order as parallel arrays, and their keys in key order. A key is the user's slot shifted left
+	 * by {@value #CODE_BITS} bits, over 0 for the email or 1 + the offset the key starts at in the name.
+	 */
+	private static final class Segment
+	{
+		static final int CODE_BITS = 16;
+		static final long CODE_MASK = (1L << CODE_BITS) - 1;
+		// In versions, for a user whose version is not known
+		static final long NO_VERSION = Long.MIN_VALUE;
+		static final Segment EMPTY = new Segment(new long[0], new long[0], new String[0], new String[0], new long[0]);
+
+		final long[] ids;
+		final long[] versions;
+		final String[] names;
+		final String[] emails;
+		final long[] keys;
+
+		private Segment(long[] ids, long[] versions, String[] names, String[] emails, long[] keys)
+		{
+			this.ids = ids;
+			this.versions = versions;
+			this.names = names;
+			this.emails = emails;
+			this.keys = keys;
+		}
+
+		static Segment of(long[] ids, long[] versions, String[] names, String[] emails)
+		{
+			int count = 0;
+			for (int slot = 0; slot < ids.length; slot++)
+			{
+				count += addKeys(null, count, slot, names[slot], emails[slot]);
+			}
+			long[] keys = new long[count];
+			count = 0;
+			for (int slot = 0; slot < ids.length; slot++)
+			{
+				count += addKeys(keys, count, slot, names[slot], emails[slot]);
+			}
+			Segment segment = new Segment(ids, versions, names, emails, keys);
+			segment.sortKeys();
+			return segment;
+		}
+
+		// Writes the slot's keys from index at on, or only counts them without keys to write to
+		private static int addKeys(long[] keys, int at, int slot, String name, String email)
+		{
+			long base = (long) slot << CODE_BITS;
+			int count = 0;
+			if (name != null && !name.isBlank())
+			{
+				int end = end(name);
+				for (int i = start(name) - 1; i + 1 < end && i + 2 <= CODE_MASK; i++)
+				{
+					// The whole name, then each word after a space
+					if ((i < 0 || name.charAt(i) == ' ') && name.charAt(i + 1) != ' ')
+					{
+						if (keys != null)
+						{
+							keys[at + count] = base | (i + 2);
+						}
+						count++;
+					}
+				}
+			}
+			if (email != null && !email.isBlank())
+			{
+				if (keys != null)
+				{
+					keys[at + count] = base;
+				}
+				count++;
+			}
+			return count;
+		}
+
+		int slot(long id)
+		{
+			return Arrays.binarySearch(ids, id);
+		}
+
+		Long version(int slot)
+		{
+			return versions[slot] == NO_VERSION ? null : versions[slot];
+		}
+
+		long id(int k)
+		{
+			return ids[(int) (keys[k] >>> CODE_BITS)];
+		}
+
+		Suggestion suggestion(int k)
+		{
+			int slot = (int) (keys[k] >>> CODE_BITS);
+			return (keys[k] & CODE_MASK) == 0
+				? new Suggestion(ids[slot], Suggestion.Field.EMAIL, emails[slot])
+				: new Suggestion(ids[slot], Suggestion.Field.NAME, names[slot]);
+		}
+
+		private String text(long key)
+		{
+			int slot = (int) (key >>> CODE_BITS);
+			return (key & CODE_MASK) == 0 ? emails[slot] : names[slot];
+		}
+
+		private int from(long key, String text)
+		{
+			long code = key & CODE_MASK;
+			return code == 0 ? start(text) : (int) code - 1;
+		}
+
+		boolean startsWith(int k, char[] prefix)
+		{
+			String text = text(keys[k]);
+			int from = from(keys[k], text);
+			if (end(text) - from < prefix.length)
+			{
+				return false;
+			}
+			for (int i = 0; i < prefix.length; i++)
+			{
+				if (Character.toLowerCase(text.charAt(from + i)) != prefix[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// First key not ordered before the prefix
+		int lowerBound(char[] prefix)
+		{
+			int low = 0;
+			int high = keys.length;
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				String text = text(keys[mid]);
+				int from = from(keys[mid], text);
+				int end = end(text);
+				int c = 0;
+				for (int i = 0; c == 0 && i < prefix.length; i++)
+				{
+					c = from + i < end ? Integer.compare(Character.toLowerCase(text.charAt(from + i)), prefix[i]) : -1;
+				}
+				if (c < 0)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		// By key text, then id, then field with names first
+		static int compare(Segment a, long keyA, Segment b, long keyB)
+		{
+			String textA = a.text(keyA);
+			String textB = b.text(keyB);
+			int i = a.from(keyA, textA);
+			int j = b.from(keyB, textB);
+			int endA = end(textA);
+			int endB = end(textB);
+			for (; i < endA && j < endB; i++, j++)
+			{
+				int c = Character.compare(Character.toLowerCase(textA.charAt(i)), Character.toLowerCase(textB.charAt(j)));
+				if (c != 0)
+				{
+					return c;
+				}
+			}
+			int c = Integer.compare(endA - i, endB - j);
+			if (c != 0)
+			{
+				return c;
+			}
+			c = Long.compare(a.ids[(int) (keyA >>> CODE_BITS)], b.ids[(int) (keyB >>> CODE_BITS)]);
+			if (c != 0)
+			{
+				return c;
+			}
+			return Boolean.compare((keyA & CODE_MASK) == 0, (keyB & CODE_MASK) == 0);
+		}
+
+		private void sortKeys()
+		{
+			long[] scratch = new long[keys.length];
+			for (int width = 1; width < keys.length; width *= 2)
+			{
+				for (int low = 0; low < keys.length - width; low += 2 * width)
+				{
+					int mid = low + width;
+					int high = Math.min(low + 2 * width, keys.length);
+					if (compare(this, keys[mid - 1], this, keys[mid]) > 0)
+					{
+						mergeRuns(low, mid, high, scratch);
+					}
+				}
+			}
+		}
+
+		private void mergeRuns(int low, int mid, int high, long[] scratch)
+		{
+			System.arraycopy(keys, low, scratch, low, high - low);
+			int i = low;
+			int j = mid;
+			for (int k = low; k < high; k++)
+			{
+				keys[k] = j >= high || (i < mid && compare(this, scratch[i], this, scratch[j]) <= 0) ? scratch[i++] : scratch[j++];
+			}
+		}
+
+		// Copies in linear time, for the overlay
+		Segment with(long id, Long version, String name, String email)
+		{
+			long[] versions = {version == null ? NO_VERSION : version};
+			return merge(this, new long[]{id}, of(new long[]{id}, versions, new String[]{name}, new String[]{email}));
+		}
+
+		Segment without(long id)
+		{
+			return slot(id) < 0 ? this : merge(this, new long[]{id}, EMPTY);
+		}
+
+		/**
+		 * The base without the shadowed users, plus the overlay, in one pass over each: users are merged by id
+		 * and keys by key order, with their slots renumbered, so nothing is sorted again.
+		 */
+		static Segment merge(Segment base, long[] shadowed, Segment overlay)
+		{
+			int capacity = base.ids.length + overlay.ids.length;
+			long[] ids = new long[capacity];
+			long[] versions = new long[capacity];
+			String[] names = new String[capacity];
+			String[] emails = new String[capacity];
+			int[] baseSlots = new int[base.ids.length];
+			int[] overlaySlots = new int[overlay.ids.length];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < base.ids.length || j < overlay.ids.length)
+			{
+				if (j >= overlay.ids.length || (i < base.ids.length && base.ids[i] < overlay.ids[j]))
+				{
+					if (Arrays.binarySearch(shadowed, base.ids[i]) >= 0)
+					{
+						baseSlots[i++] = -1;
+						continue;
+					}
+					baseSlots[i] = count;
+					ids[count] = base.ids[i];
+					versions[count] = base.versions[i];
+					names[count] = base.names[i];
+					emails[count++] = base.emails[i++];
+				}
+				else
+				{
+					// The overlay shadows the base, so a base copy of the same user is dropped above or here
+					if (i < base.ids.length && base.ids[i] == overlay.ids[j])
+					{
+						baseSlots[i++] = -1;
+					}
+					overlaySlots[j] = count;
+					ids[count] = overlay.ids[j];
+					versions[count] = overlay.versions[j];
+					names[count] = overlay.names[j];
+					emails[count++] = overlay.emails[j++];
+				}
+			}
+
+			long[] keys = new long[base.keys.length + overlay.keys.length];
+			int k = 0;
+			i = 0;
+			j = 0;
+			while (true)
+			{
+				while (i < base.keys.length && baseSlots[(int) (base.keys[i] >>> CODE_BITS)] < 0)
+				{
+					i++;
+				}
+				boolean fromBase = i < base.keys.length;
+				boolean fromOverlay = j < overlay.keys.length;
+				if (!fromBase && !fromOverlay)
+				{
+					break;
+				}
+				if (fromBase && (!fromOverlay || compare(base, base.keys[i], overlay, overlay.keys[j]) < 0))
+				{
+					keys[k++] = renumber(base.keys[i++], baseSlots);
+				}
+				else
+				{
+					keys[k++] = renumber(overlay.keys[j++], overlaySlots);
+				}
+			}
+			return new Segment(Arrays.copyOf(ids, count), Arrays.copyOf(versions, count), Arrays.copyOf(names, count),
+				Arrays.copyOf(emails, count), Arrays.copyOf(keys, k));
+		}
+
+		private static long renumber(long key, int[] slots)
+		{
+			return ((long) slots[(int) (key >>> CODE_BITS)] << CODE_BITS) | (key & CODE_MASK);
+		}
+
+		// Surrounding whitespace is not part of a key
+		private static int start(String text)
+		{
+			int i = 0;
+			while (i < text.length() && Character.isWhitespace(text.charAt(i)))
+			{
+				i++;
+			}
+			return i;
+		}
+
+		private static int end(String text)
+		{
+			int i = text.length();
+			while (i > 0 && Character.isWhitespace(text.charAt(i - 1)))
+			{
+				i--;
+			}
+			return i;
+		}
+	}
+
+	// Users read by a rebuild, in id order
+	private static final class Rows
+	{
+		private long[] ids = new long[1024];
+		private long[] versions = new long[1024];
+		private final List<String> names = new ArrayList<>();
+		private final List<String> emails = new ArrayList<>();
+
+		void add(User user)
+		{
+			if (names.size() == ids.length)
+			{
+				ids = Arrays.copyOf(ids, ids.length * 2);
+				versions = Arrays.copyOf(versions, ids.length);
+			}
+			versions[names.size()] = user.getVersion() == null ? Segment.NO_VERSION : user.getVersion();
+			ids[names.size()] = user.getId();
+			names.add(user.getName());
+			emails.add(user.getEmail());
+		}
+
+		Segment toSegment(Set<Long> skipped)
+		{
+			int count = 0;
+			for (int i = 0; i < names.size(); i++)
+			{
+				if (!skipped.contains(ids[i]))
+				{
+					ids[count] = ids[i];
+					versions[count] = versions[i];
+					names.set(count, names.get(i));
+					emails.set(count++, emails.get(i));
+				}
+			}
+			return Segment.of(Arrays.copyOf(ids, count), Arrays.copyOf(versions, count), names.subList(0, count).toArray(String[]::new),
+				emails.subList(0, count).toArray(String[]::new));
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import se.digg.application.model.User;
+
+/**
+ * Version of the users table as a whole, so listings can answer conditional GETs without a query.
+ * <p>
+ * Counted in-process: every write through {@link UserServiceImpl} moves it, and the ETag carries the
+ * application start so a restart never reuses an earlier tag.
+ */
+@Component
+public class UserTableVersion implements UserChangeListener
+{
+	private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+	private final AtomicLong version = new AtomicLong();
+	private volatile long lastModified = System.currentTimeMillis();
+
+	// Startup seeding writes around the service, so start counting once it is done
+	@EventListener(ApplicationReadyEvent.class)
+	public void initialize()
+	{
+		changed();
+	}
+
+	/**
+	 * @return strong ETag for any representation derived from the whole table
+	 */
+	public String etag()
+	{
+		return "\"t" + epoch + "-" + version.get() + "\"";
+	}
+
+	/**
+	 * @return time of the last write in epoch millis, or of startup if there was none
+	 */
+	public long lastModified()
+	{
+		return lastModified;
+	}
+
+	@Override
+	public void onUserCreated(User user)
+	{
+		changed();
+	}
+
+	@Override
+	public void onUserUpdated(User user)
+	{
+		changed();
+	}
+
+	@Override
+	public void onUserDeleted(Long id)
+	{
+		changed();
+	}
+
+	@Override
+	public void onUsersDeleted(Collection<Long> ids, int deleted)
+	{
+		changed();
+	}
+
+	private void changed()
+	{
+		lastModified = System.currentTimeMillis();
+		version.incrementAndGet();
+	}
+}
@@ -11,73 +11,175 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.turbo.TurboFilter;
 import ch.qos.logback.core.spi.FilterReply;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicInteger;
-import lombok.EqualsAndHashCode;
-import lombok.RequiredArgsConstructor;
+import ch.qos.logback.core.util.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
 /**
- * Deduplication filter for excessive logging
+ * Deduplication filter for excessive logging.
+ * <p>
+ * The first exception logged with the {@link #DEDUPLICATE} marker is let through; repeats of the same message
+ * and stack trace are denied and counted, and every {@code summaryInterval} one line per trace reports how many
+ * were suppressed. A trace that was not repeated during a whole interval is forgotten, so it is logged in full
+ * the next time.
+ * <p>
+ * Traces are keyed by a 64-bit hash of the message pattern, exception class and top frames, and kept in a
+ * fixed-size open-addressed table that is only updated by CAS. Repeats just bump a {@link LongAdder}, so an
+ * error storm on many threads takes no locks and does not contend; the one allocation per repeat is the copy of
+ * the frame array that {@link Throwable#getStackTrace()} returns. Configured in logback-spring.xml with
+ * {@code <capacity>} (rounded up to a power of two) and {@code <summaryInterval>}.
  */
 public class DeduplicationFilter extends TurboFilter
 {
-	private static final Marker deduplicateMarker = MarkerFactory.getMarker("DEDUPLICATE");
-	private static final int CACHE_SIZE = 8;
-	private static final int DUPLICATE_LOG_COUNT = 1000;
+	public static final Marker DEDUPLICATE = MarkerFactory.getMarker("DEDUPLICATE");
+	// Slots tried from a trace's home slot before it takes the home slot over
+	private static final int PROBES = 8;
+	// Frames beyond this rarely tell two traces apart and only cost hashing time
+	private static final int MAX_FRAMES = 32;
 
-	@RequiredArgsConstructor
-	@EqualsAndHashCode(exclude = {"count"})
-	private static class LogException
+	private static final class Entry
 	{
+		private final long hash;
+		private final Logger logger;
 		private final String message;
-		private final StackTraceElement[] stackTraceElements;
-		private volatile int count;
-		private volatile AtomicInteger c = new AtomicInteger(0);
+		private final LongAdder suppressed = new LongAdder();
+
+		private Entry(long hash, Logger logger, String message)
+		{
+			this.hash = hash;
+			this.logger = logger;
+			this.message = message;
+		}
 	}
 
-	private final Deque<LogException> cache = new ConcurrentLinkedDeque<>();
+	private int capacity = 256;
+	private Duration summaryInterval = Duration.buildBySeconds(30);
+
+	private AtomicReferenceArray<Entry> table;
+	private int mask;
+	private ScheduledExecutorService scheduler;
+
+	public void setCapacity(int capacity)
+	{
+		this.capacity = capacity;
+	}
+
+	public void setSummaryInterval(Duration summaryInterval)
+	{
+		this.summaryInterval = summaryInterval;
+	}
+
+	@Override
+	public void start()
+	{
+		int size = capacity <= PROBES ? PROBES : Integer.highestOneBit(capacity - 1) << 1;
+		table = new AtomicReferenceArray<>(size);
+		mask = size - 1;
+		scheduler = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread thread = new Thread(r, "log-deduplication");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = summaryInterval.getMilliseconds();
+		scheduler.scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+		super.start();
+	}
 
 	@Override
 	public void stop()
 	{
-		cache.clear();
 		super.stop();
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow();
+			flush();
+		}
 	}
 
 	@Override
 	public FilterReply decide(Marker marker, Logger logger, Level level, String s, Object[] objects, Throwable throwable)
 	{
-		if (marker != deduplicateMarker || logger.isDebugEnabled() || throwable == null)
+		if (marker != DEDUPLICATE || throwable == null || !isStarted() || logger.isDebugEnabled())
 		{
 			return FilterReply.NEUTRAL;
 		}
 
-		LogException logException = new LogException(s, throwable.getStackTrace());
-		for (LogException e : cache)
+		long hash = hash(s, throwable);
+		int home = (int) hash & mask;
+		for (int i = 0; i < PROBES; i++)
 		{
-			if (logException.equals(e))
+			int slot = (home + i) & mask;
+			Entry entry = table.get(slot);
+			if (entry == null)
 			{
-				if (e.c.incrementAndGet() % DUPLICATE_LOG_COUNT == 0)
+				if (table.compareAndSet(slot, null, new Entry(hash, logger, s)))
 				{
-					logger.warn("following log message logged " + DUPLICATE_LOG_COUNT + " times!");
 					return FilterReply.NEUTRAL;
 				}
+				entry = table.get(slot);
+			}
+			if (entry != null && entry.hash == hash)
+			{
+				entry.suppressed.increment();
 				return FilterReply.DENY;
 			}
 		}
 
-		synchronized (cache)
+		// Probe window full: the displaced trace reports what it has and starts over on its next occurrence
+		summarize(table.getAndSet(home, new Entry(hash, logger, s)));
+		return FilterReply.NEUTRAL;
+	}
+
+	/**
+	 * Reports and resets every suppressed count; traces without repeats since the last flush are forgotten.
+	 */
+	void flush()
+	{
+		for (int slot = 0; slot < table.length(); slot++)
 		{
-			if (cache.size() >= CACHE_SIZE)
+			Entry entry = table.get(slot);
+			if (entry != null && !summarize(entry))
 			{
-				cache.pop();
+				table.compareAndSet(slot, entry, null);
 			}
-			cache.push(logException);
 		}
+	}
 
-		return FilterReply.NEUTRAL;
+	private boolean summarize(Entry entry)
+	{
+		long suppressed = entry.suppressed.sumThenReset();
+		if (suppressed == 0)
+		{
+			return false;
+		}
+		entry.logger.warn("Suppressed {} repeat(s) of \"{}\" within {}", suppressed, entry.message, summaryInterval);
+		return true;
+	}
+
+	// getStackTrace() copies the frame array but not the frames, whose hash codes come from cached String hashes
+	static long hash(String message, Throwable throwable)
+	{
+		long h = throwable.getClass().getName().hashCode();
+		h = h * 0x9E3779B97F4A7C15L + (message == null ? 0 : message.hashCode());
+		StackTraceElement[] frames = throwable.getStackTrace();
+		int depth = Math.min(frames.length, MAX_FRAMES);
+		for (int i = 0; i < depth; i++)
+		{
+			h = h * 0x9E3779B97F4A7C15L + frames[i].hashCode();
+		}
+		h = h * 0x9E3779B97F4A7C15L + frames.length;
+		// Final avalanche (MurmurHash3 fmix64) so the low bits used for the slot depend on every frame
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
 	}
-}
\ No newline at end of file
+}
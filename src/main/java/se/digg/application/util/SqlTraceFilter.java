@@ -0,0 +1,59 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Turns on Hibernate's SQL and bind-parameter logging for the current thread only, whatever their levels.
+ * <p>
+ * Work between {@link #begin(String)} and {@link #end()} is traced; the label is put in the MDC under
+ * {@link #MDC_KEY} so the statements can be told apart. Every disabled log call in the application passes
+ * through this filter, so while nothing is traced it costs a single volatile read.
+ */
+public class SqlTraceFilter extends TurboFilter
+{
+	public static final String MDC_KEY = "sqlTrace";
+	static final String SQL_LOGGER = "org.hibernate.SQL";
+	static final String BIND_LOGGER = "org.hibernate.orm.jdbc.bind";
+
+	// Threads currently tracing, across all filter instances
+	private static final AtomicInteger TRACING = new AtomicInteger();
+
+	/**
+	 * Starts tracing on this thread; must be paired with {@link #end()} in a finally block.
+	 */
+	public static void begin(String label)
+	{
+		MDC.put(MDC_KEY, label);
+		TRACING.incrementAndGet();
+	}
+
+	public static void end()
+	{
+		TRACING.decrementAndGet();
+		MDC.remove(MDC_KEY);
+	}
+
+	@Override
+	public FilterReply decide(Marker marker, Logger logger, Level level, String s, Object[] objects, Throwable throwable)
+	{
+		if (TRACING.get() == 0 || !isStarted() || MDC.get(MDC_KEY) == null)
+		{
+			return FilterReply.NEUTRAL;
+		}
+		String name = logger.getName();
+		return name.equals(SQL_LOGGER) || name.startsWith(BIND_LOGGER) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+	}
+}
@@ -0,0 +1,21 @@
+--
+--   Copyright (c) HAN, 2025
+--   Licensed under the EUPL-1.2-or-later, with extension of article 5
+--   (compatibility clause) to any licence for distributing derivative works
+--   that have been produced by the normal use of the Work as a library.
+--   See the LICENSE file for the full details of EUPL-1.2
+--
+-- The schema Hibernate's ddl-auto used to create for User
+
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+	id BIGINT NOT NULL,
+	version BIGINT,
+	address VARCHAR(255) NOT NULL,
+	email VARCHAR(255) NOT NULL,
+	name VARCHAR(255) NOT NULL,
+	telephone VARCHAR(255),
+	CONSTRAINT users_pk PRIMARY KEY (id),
+	CONSTRAINT users_email_uk UNIQUE (email)
+);
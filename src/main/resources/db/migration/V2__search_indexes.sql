@@ -0,0 +1,19 @@
+--
+--   Copyright (c) HAN, 2025
+--   Licensed under the EUPL-1.2-or-later, with extension of article 5
+--   (compatibility clause) to any licence for distributing derivative works
+--   that have been produced by the normal use of the Work as a library.
+--   See the LICENSE file for the full details of EUPL-1.2
+--
+-- Indexes on lower(name) and lower(email). H2 cannot index an expression, so the lower-cased values are
+-- generated columns, kept current by the database on every write, and queries name those columns
+-- (User.nameLower, User.emailLower). id breaks ties, so prefix lookups come back in index order.
+--
+-- The default sort key is id (unsorted pages, keyset pages, exports): the primary key already covers it.
+-- Substring searches (LIKE '%q%') cannot seek on any B-tree index and stay with the in-memory indexes.
+
+ALTER TABLE users ADD COLUMN name_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(name));
+ALTER TABLE users ADD COLUMN email_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(email));
+
+CREATE INDEX users_name_lower_idx ON users (name_lower, id);
+CREATE INDEX users_email_lower_idx ON users (email_lower, id);
@@ -0,0 +1,16 @@
+--
+--   Copyright (c) HAN, 2025
+--   Licensed under the EUPL-1.2-or-later, with extension of article 5
+--   (compatibility clause) to any licence for distributing derivative works
+--   that have been produced by the normal use of the Work as a library.
+--   See the LICENSE file for the full details of EUPL-1.2
+--
+-- One row naming this database, written when it is created. Per-user ETags carry it: user versions start over
+-- in a new database (every start with jdbc:h2:mem), but live on with the rows in a file that is opened again.
+
+CREATE TABLE storage_epoch (
+	epoch VARCHAR(36) NOT NULL,
+	CONSTRAINT storage_epoch_pk PRIMARY KEY (epoch)
+);
+
+INSERT INTO storage_epoch (epoch) VALUES (CAST(RANDOM_UUID() AS VARCHAR(36)));
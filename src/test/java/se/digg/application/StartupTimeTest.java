@@ -0,0 +1,87 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import static io.restassured.RestAssured.given;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import org.junit.jupiter.api.Test;
+import org.springdoc.webmvc.api.OpenApiWebMvcResource;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.digg.application.controller.CustomErrorController;
+
+/**
+ * Starts the whole application, eagerly and in lazy-init mode, and records the time to ready of each as
+ * reported by {@code application.ready.time}. Timings on shared build machines vary too much to assert on;
+ * {@code StartupBenchmark} measures them properly.
+ */
+@Slf4j
+class StartupTimeTest
+{
+	@Test
+	void eagerStartCreatesEveryBean()
+	{
+		try (ConfigurableApplicationContext context = start(false))
+		{
+			log.info("Time to ready (eager): {}ms", readyTimeMillis(context));
+
+			assertThat(isCreated(context, OpenApiWebMvcResource.class)).isTrue();
+			assertThat(isCreated(context, CustomErrorController.class)).isTrue();
+		}
+	}
+
+	@Test
+	void lazyStartDefersSwaggerAndErrorPageToFirstUse()
+	{
+		try (ConfigurableApplicationContext context = start(true))
+		{
+			log.info("Time to ready (lazy): {}ms", readyTimeMillis(context));
+
+			assertThat(isCreated(context, OpenApiWebMvcResource.class)).isFalse();
+			assertThat(isCreated(context, CustomErrorController.class)).isFalse();
+
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			given().port(port).get("/api-docs").then().statusCode(200).body(containsString("/digg/user"));
+			given().port(port).accept("text/html").get("/no-such-page").then().statusCode(404).body(containsString("404"));
+
+			assertThat(isCreated(context, OpenApiWebMvcResource.class)).isTrue();
+			assertThat(isCreated(context, CustomErrorController.class)).isTrue();
+		}
+	}
+
+	private static ConfigurableApplicationContext start(boolean lazy)
+	{
+		return new SpringApplicationBuilder(Application.class).run(
+			"--server.port=0",
+			"--spring.datasource.url=jdbc:h2:mem:startup-" + System.nanoTime(),
+			"--digg.startup.lazy-init.enabled=" + lazy,
+			"--spring.main.banner-mode=off");
+	}
+
+	private static long readyTimeMillis(ConfigurableApplicationContext context)
+	{
+		double ready = context.getBean(MeterRegistry.class).get("application.ready.time").timeGauge().value(TimeUnit.MILLISECONDS);
+		assertThat(ready).isPositive();
+		return (long) ready;
+	}
+
+	// Whether the bean has been instantiated, without instantiating it
+	private static boolean isCreated(ConfigurableApplicationContext context, Class<?> type)
+	{
+		ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+		String[] names = beanFactory.getBeanNamesForType(type, false, false);
+		assertThat(names).hasSize(1);
+		return beanFactory.containsSingleton(names[0]);
+	}
+}
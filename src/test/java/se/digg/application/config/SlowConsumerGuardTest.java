@@ -0,0 +1,80 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import se.digg.application.events.UserEventBroadcaster;
+
+class SlowConsumerGuardTest
+{
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SlowConsumerGuard guard = new SlowConsumerGuard(meterRegistry);
+	private final MessageChannel channel = mock(MessageChannel.class);
+	private final MessageHandler handler = mock(MessageHandler.class);
+
+	@Test
+	void skipsQueuedTopicMessagesSupersededForTheSameSession()
+	{
+		Message<?> first = guard.preSend(message("s1", UserEventBroadcaster.TOPIC), channel);
+		Message<?> other = guard.preSend(message("s2", UserEventBroadcaster.TOPIC), channel);
+		Message<?> second = guard.preSend(message("s1", UserEventBroadcaster.TOPIC), channel);
+
+		assertThat(guard.beforeHandle(first, channel, handler)).isNull();
+		assertThat(guard.beforeHandle(other, channel, handler)).isSameAs(other);
+		assertThat(guard.beforeHandle(second, channel, handler)).isSameAs(second);
+		guard.afterMessageHandled(second, channel, handler, null);
+
+		// Delivered, so the next one is not held back by it
+		Message<?> third = guard.preSend(message("s1", UserEventBroadcaster.TOPIC), channel);
+		assertThat(guard.beforeHandle(third, channel, handler)).isSameAs(third);
+		assertThat(meterRegistry.counter("digg.websocket.topic.conflated").count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void leavesOtherDestinationsAlone()
+	{
+		Message<?> first = guard.preSend(message("s1", "/topic/other"), channel);
+		guard.preSend(message("s1", "/topic/other"), channel);
+
+		assertThat(guard.beforeHandle(first, channel, handler)).isSameAs(first);
+	}
+
+	@Test
+	void countsSessionsClosedAsUnreliable() throws Exception
+	{
+		WebSocketHandler decorated = guard.decorate(mock(WebSocketHandler.class));
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn("s1");
+
+		decorated.afterConnectionClosed(session, CloseStatus.NORMAL);
+		decorated.afterConnectionClosed(session, CloseStatus.SESSION_NOT_RELIABLE);
+
+		assertThat(meterRegistry.counter("digg.websocket.sessions.slow").count()).isEqualTo(1.0);
+	}
+
+	private static Message<?> message(String sessionId, String destination)
+	{
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
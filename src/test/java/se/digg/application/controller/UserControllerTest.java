@@ -8,17 +8,24 @@
 package se.digg.application.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import org.mockito.Captor;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -29,10 +36,15 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
@@ -41,16 +53,23 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import se.digg.application.api.BulkItemResult;
+import se.digg.application.api.Suggestion;
 import se.digg.application.config.TestSecurityConfig;
 import se.digg.application.events.UserEvent;
+import se.digg.application.events.UserEventBroadcaster;
 import se.digg.application.model.User;
 import se.digg.application.service.UserServiceImpl;
+import se.digg.application.service.UserTableVersion;
 
-@Import(TestSecurityConfig.class)
+@Import({TestSecurityConfig.class, UserEventBroadcaster.class, UserTableVersion.class, SimpleMeterRegistry.class})
 @WebMvcTest(UserController.class)
+@TestPropertySource(properties = "digg.events.window=0ms") // broadcast synchronously so sends can be verified
 public class UserControllerTest
 {
+	private static final String STORAGE_EPOCH = "3f2c9a1e-6b7d-4e8f-9a0b-1c2d3e4f5a6b";
 
 	@Autowired
 	private MockMvc mockMvc;
@@ -61,6 +80,7 @@ public class UserControllerTest
 	@Autowired
 	private ObjectMapper om;
 
+
 	@MockBean
 	private SimpMessagingTemplate messagingTemplate;
 
@@ -72,6 +92,7 @@ public class UserControllerTest
 	@BeforeEach
 	void setUp()
 	{
+		when(userServiceImpl.storageEpoch()).thenReturn(STORAGE_EPOCH);
 		sampleUser = new User();
 		sampleUser.setId(1L);
 		sampleUser.setName("Alice");
@@ -107,6 +128,58 @@ public class UserControllerTest
 		verify(userServiceImpl).getAllUsers();
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void testExportUsersStreamsNdjson() throws Exception
+	{
+		doAnswer(inv ->
+		{
+			Consumer<User> sink = inv.getArgument(0);
+			sink.accept(sampleUser);
+			sink.accept(new User(2L, "Kalle Anka", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+			return 2L;
+		}).when(userServiceImpl).exportUsers(any(Consumer.class));
+
+		MvcResult result = mockMvc.perform(get("/digg/user/export"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+			.andExpect(content().string(
+				om.writeValueAsString(sampleUser) + "\n"
+					+ om.writeValueAsString(new User(2L, "Kalle Anka", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200")) + "\n"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testExportUsersStreamsQuotedCsv() throws Exception
+	{
+		doAnswer(inv ->
+		{
+			Consumer<User> sink = inv.getArgument(0);
+			sink.accept(sampleUser);
+			return 1L;
+		}).when(userServiceImpl).exportUsers(any(Consumer.class));
+
+		MvcResult result = mockMvc.perform(get("/digg/user/export").param("format", "csv"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().string("id,name,address,email,telephone\r\n"
+				+ "1,Alice,\"Bellmans Gränd 17, 11717 Stockholm\",alice@example.com,123456\r\n"));
+	}
+
+	@Test
+	void testExportUsersRejectsUnknownFormat() throws Exception
+	{
+		mockMvc.perform(get("/digg/user/export").param("format", "xml"))
+			.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	public void testCreateUser() throws Exception
 	{
@@ -233,6 +306,133 @@ public class UserControllerTest
 			.andExpect(jsonPath("$.content", is(notNullValue())));
 	}
 
+	@Test
+	void testFullTextModeUsesRankedSearch() throws Exception
+	{
+		when(userServiceImpl.searchUsers(eq("alice"), any()))
+			.thenReturn(new PageImpl<>(List.of(sampleUser), PageRequest.of(0, 10), 1));
+
+		mockMvc.perform(get("/digg/user/0/10/search/alice").param("mode", "fulltext"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.content[0].id").value(1))
+			.andExpect(jsonPath("$.totalElements").value(1));
+
+		verify(userServiceImpl, never()).queryUsers(any(), any());
+	}
+
+	@Test
+	void testSuggestCapsSize() throws Exception
+	{
+		when(userServiceImpl.suggestUsers("ali", 50))
+			.thenReturn(List.of(new Suggestion(1L, Suggestion.Field.NAME, "Alice")));
+
+		mockMvc.perform(get("/digg/user/suggest").param("prefix", "ali").param("size", "1000"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].id").value(1))
+			.andExpect(jsonPath("$[0].field").value("NAME"))
+			.andExpect(jsonPath("$[0].value").value("Alice"));
+	}
+
+	@Test
+	void testUnknownSearchModeIsBadRequest() throws Exception
+	{
+		mockMvc.perform(get("/digg/user/0/10/search/alice").param("mode", "fuzzy"))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testGetUsersSliceOmitsTotals() throws Exception
+	{
+		when(userServiceImpl.getUsersSlice(PageRequest.of(0, 10)))
+			.thenReturn(new SliceImpl<>(List.of(sampleUser), PageRequest.of(0, 10), true));
+
+		mockMvc.perform(get("/digg/user/0/10").param("slice", "true"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.content[0].id").value(1))
+			.andExpect(jsonPath("$.hasNext").value(true))
+			.andExpect(jsonPath("$.totalElements").doesNotExist())
+			.andExpect(jsonPath("$.totalPages").doesNotExist());
+
+		verify(userServiceImpl, never()).getUsers(any());
+	}
+
+	@Test
+	void testGetUsersAfterReturnsNextCursor() throws Exception
+	{
+		when(userServiceImpl.getUsersAfter(0L, 1))
+			.thenReturn(new SliceImpl<>(List.of(sampleUser), PageRequest.of(0, 1), true));
+
+		mockMvc.perform(get("/digg/user/after/0/1"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.content[0].id").value(1))
+			.andExpect(jsonPath("$.hasNext").value(true))
+			.andExpect(jsonPath("$.nextCursor").value(1));
+	}
+
+	@Test
+	void testQueryUsersAfterLastPageHasNoNext() throws Exception
+	{
+		when(userServiceImpl.queryUsersAfter("alice", 0L, 10))
+			.thenReturn(new SliceImpl<>(List.of(sampleUser), PageRequest.of(0, 10), false));
+
+		mockMvc.perform(get("/digg/user/after/0/10/search/alice"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.content[0].name").value("Alice"))
+			.andExpect(jsonPath("$.hasNext").value(false));
+	}
+
+	@Test
+	void testAfterRejectsSizesOutOfRange() throws Exception
+	{
+		mockMvc.perform(get("/digg/user/after/0/0"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/digg/user/after/0/1001"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/digg/user/after/0/2147483647/search/alice"))
+			.andExpect(status().isBadRequest());
+
+		verify(userServiceImpl, never()).getUsersAfter(anyLong(), anyInt());
+		verify(userServiceImpl, never()).queryUsersAfter(any(), anyLong(), anyInt());
+	}
+
+	@Test
+	void testGetUserByIdAnswersMatchingETagWith304() throws Exception
+	{
+		sampleUser.setVersion(3L);
+		when(userServiceImpl.getUserById(1L)).thenReturn(Optional.of(sampleUser));
+
+		mockMvc.perform(get("/digg/user/1"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", userTag(3)))
+			.andExpect(header().exists("Last-Modified"))
+			.andExpect(header().string("Cache-Control", "no-cache"));
+
+		mockMvc.perform(get("/digg/user/1").header("If-None-Match", userTag(3)))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+
+		mockMvc.perform(get("/digg/user/1").header("If-None-Match", userTag(2)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.version").value(3));
+	}
+
+	@Test
+	void testGetUsersPagedNotModifiedSkipsService() throws Exception
+	{
+		when(userServiceImpl.getUsersSlice(PageRequest.of(0, 10)))
+			.thenReturn(new SliceImpl<>(List.of(sampleUser), PageRequest.of(0, 10), false));
+
+		String etag = mockMvc.perform(get("/digg/user/0/10").param("slice", "true"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader("ETag");
+		assertNotNull(etag);
+
+		mockMvc.perform(get("/digg/user/0/10").header("If-None-Match", etag))
+			.andExpect(status().isNotModified());
+
+		verify(userServiceImpl, never()).getUsers(any());
+	}
+
 	@Test
 	void testGetUserByIdOkWhenExists() throws Exception
 	{
@@ -269,6 +469,10 @@ public class UserControllerTest
 
 		verify(messagingTemplate).convertAndSend(eq("/topic/users"), payloadCaptor.capture());
 		assertEventPayload(payloadCaptor.getValue(), UserEvent.EDIT.name());
+		Map<String, Object> change = changesOf(payloadCaptor.getValue()).get(0);
+		assertEquals(1L, change.get("id"));
+		assertEquals(sampleUser, change.get("user"));
+		assertNotNull(change.get("version"));
 	}
 
 	@Test
@@ -283,6 +487,66 @@ public class UserControllerTest
 		assertEventPayload(payloadCaptor.getValue(), UserEvent.DELETE.name());
 	}
 
+	@Test
+	void testBulkCreateReportsItemsAndEmitsSingleEvent() throws Exception
+	{
+		List<User> input = List.of(
+			new User("Kajsa Anka", "Vägen 13, 67421 Staden", "kajsa@acme.org", "070-0701100"),
+			new User("", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"),
+			new User("Knatte Anka", "Vägen 1, 67422 Staden", "knatte@acme.org", "070-0703300")
+		);
+		when(userServiceImpl.createUsers(any())).thenReturn(List.of(
+			BulkItemResult.created(0, 100L),
+			BulkItemResult.rejected(1, BulkItemResult.Status.INVALID, List.of("name: Name is required")),
+			BulkItemResult.created(2, 101L)
+		));
+
+		mockMvc.perform(post("/digg/user/bulk")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(input)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.created").value(2))
+			.andExpect(jsonPath("$.failed").value(1))
+			.andExpect(jsonPath("$.results[0].id").value(100))
+			.andExpect(jsonPath("$.results[1].status").value("INVALID"))
+			.andExpect(jsonPath("$.results[1].errors[0]").value("name: Name is required"));
+
+		verify(messagingTemplate).convertAndSend(eq("/topic/users"), payloadCaptor.capture());
+		assertEventPayload(payloadCaptor.getValue(), UserEvent.ADD.name());
+		List<Map<String, Object>> changes = changesOf(payloadCaptor.getValue());
+		assertEquals(2, changes.size());
+		assertEquals(101L, changes.get(1).get("id"));
+		assertEquals("Knatte Anka", ((User) changes.get(1).get("user")).getName());
+		assertEquals((Long) changes.get(0).get("version") + 1, changes.get(1).get("version"));
+	}
+
+	@Test
+	void testBulkCreateRejectsEmptyRequest() throws Exception
+	{
+		mockMvc.perform(post("/digg/user/bulk")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[]"))
+			.andExpect(status().isBadRequest());
+
+		verify(userServiceImpl, never()).createUsers(any());
+	}
+
+	@Test
+	void testBulkDeleteReportsCountsAndEmitsSingleEvent() throws Exception
+	{
+		when(userServiceImpl.deleteUsers(List.of(1L, 2L))).thenReturn(1);
+
+		mockMvc.perform(post("/digg/user/bulk/delete")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[1, 2, 2]"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.requested").value(2))
+			.andExpect(jsonPath("$.deleted").value(1));
+
+		verify(messagingTemplate).convertAndSend(eq("/topic/users"), payloadCaptor.capture());
+		assertEvent(payloadCaptor.getValue(), UserEvent.DELETE.name());
+	}
+
 	@Test
 	void testCorsPreflightAllowsFrontendOrigin() throws Exception
 	{
@@ -352,6 +616,58 @@ public class UserControllerTest
 		verify(messagingTemplate, never()).convertAndSend(eq("/topic/users"), any(User.class));
 	}
 
+	@Test
+	void testPutWithIfMatchUpdatesThatVersionAndReturnsNewETag() throws Exception
+	{
+		var input = new User(10L, "Name Upd", "Addr", "x@y.z", "123");
+		var updated = new User(10L, "Name Upd", "Addr", "x@y.z", "123");
+		updated.setVersion(5L);
+		when(userServiceImpl.updateUser(eq(10L), any(User.class), eq(4L))).thenReturn(Optional.of(updated));
+
+		mockMvc.perform(put("/digg/user/10")
+				.header("If-Match", userTag(4))
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(input)))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", userTag(5)));
+
+		verify(userServiceImpl, never()).updateUser(eq(10L), any(User.class));
+	}
+
+	@Test
+	void testPutWithStaleIfMatchReturns412AndNoEvent() throws Exception
+	{
+		var input = new User(10L, "Name Upd", "Addr", "x@y.z", "123");
+		when(userServiceImpl.updateUser(eq(10L), any(User.class), eq(4L)))
+			.thenThrow(new OptimisticLockingFailureException("User 10 is no longer at version 4"));
+
+		mockMvc.perform(put("/digg/user/10")
+				.header("If-Match", userTag(4))
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(input)))
+			.andExpect(status().isPreconditionFailed())
+			.andExpect(jsonPath("$.status").value(412));
+
+		verify(messagingTemplate, never()).convertAndSend(eq("/topic/users"), any(Object.class));
+	}
+
+	@Test
+	void testPutWithIfMatchFromAnotherDatabaseReturns412() throws Exception
+	{
+		var input = new User(10L, "Name Upd", "Addr", "x@y.z", "123");
+		// A tag of another epoch maps to a version no row has; for an existing row the service reports it stale
+		when(userServiceImpl.updateUser(eq(10L), any(User.class), eq(-1L)))
+			.thenThrow(new OptimisticLockingFailureException("User 10 is no longer at version -1"));
+
+		mockMvc.perform(put("/digg/user/10")
+				.header("If-Match", "\"vother-database-4\"")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(input)))
+			.andExpect(status().isPreconditionFailed());
+
+		verify(userServiceImpl, never()).updateUser(eq(10L), any(User.class), eq(4L));
+	}
+
 	@Test
 	void testPutUpdateNotFoundReturns404AndNoEvent() throws Exception
 	{
@@ -408,6 +724,12 @@ public class UserControllerTest
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private static List<Map<String, Object>> changesOf(Object payload)
+	{
+		return (List<Map<String, Object>>) ((Map<String, Object>) payload).get("changes");
+	}
+
 	@SuppressWarnings("unchecked")
 	private void assertEventPayload(Object payload, String expectedEvent)
 	{
@@ -442,4 +764,9 @@ public class UserControllerTest
 			throw new AssertionError("Payload was not a Map. Got: " + (payload == null ? "null" : payload.getClass()));
 		}
 	}
-}
\ No newline at end of file
+
+	private String userTag(long version)
+	{
+		return "\"v" + STORAGE_EPOCH + "-" + version + "\"";
+	}
+}
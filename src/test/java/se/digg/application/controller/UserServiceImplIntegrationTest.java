@@ -11,19 +11,29 @@ import io.restassured.RestAssured;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.withArgs;
 import io.restassured.http.ContentType;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import se.digg.application.service.UserIndexRebuilder;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// Registries other than the in-memory one are off in tests by default; the Prometheus scrape needs its own
+@AutoConfigureObservability(tracing = false)
 @org.springframework.context.annotation.Import(se.digg.application.config.TestSecurityConfig.class)
 class UserServiceImplIntegrationTest
 {
@@ -31,9 +41,14 @@ class UserServiceImplIntegrationTest
 	@LocalServerPort
 	int port;
 
+	@Autowired
+	UserIndexRebuilder indexRebuilder;
+
 	@BeforeEach
 	void setup()
 	{
+		// Searches would otherwise be answered by the database fallbacks
+		indexRebuilder.rebuilt().join();
 		RestAssured.baseURI = "http://localhost";
 		RestAssured.basePath = "/digg/user";
 		RestAssured.port = port;
@@ -83,6 +98,245 @@ class UserServiceImplIntegrationTest
 			.body("email", is("carol@example.com"));
 	}
 
+	@Test
+	void testGetByIdIsCachedAndEvictedOnUpdate()
+	{
+		Long id =
+			given()
+				.contentType(ContentType.JSON)
+				.body(Map.of(
+					"name", "Cached",
+					"address", "Cache Lane 1",
+					"email", "cached_" + System.currentTimeMillis() + "@example.com",
+					"telephone", "555-111"
+				))
+				.when()
+				.post("")
+				.then()
+				.statusCode(201)
+				.extract().jsonPath().getLong("id");
+
+		float hitsBefore = cacheGets("hit");
+		given().when().get("/" + id).then().statusCode(200).body("name", is("Cached"));
+		given().when().get("/" + id).then().statusCode(200).body("name", is("Cached"));
+		float hitsAfter = cacheGets("hit");
+		assertThat(hitsAfter - hitsBefore).isGreaterThanOrEqualTo(1);
+
+		given()
+			.contentType(ContentType.JSON)
+			.body(Map.of(
+				"name", "Cached Updated",
+				"address", "Cache Lane 2",
+				"email", "cached_upd_" + System.currentTimeMillis() + "@example.com",
+				"telephone", "555-112"
+			))
+			.when()
+			.put("/" + id)
+			.then()
+			.statusCode(200);
+
+		// The update evicts rather than puts, so the next read goes to the database
+		float missesBefore = cacheGets("miss");
+		given().when().get("/" + id).then().statusCode(200).body("name", is("Cached Updated"));
+		assertThat(cacheGets("miss") - missesBefore).isGreaterThanOrEqualTo(1);
+
+		given().when().delete("/" + id).then().statusCode(204);
+		given().when().get("/" + id).then().statusCode(404);
+	}
+
+	@Test
+	void testConditionalGetsFollowWrites()
+	{
+		String pageTag = given().when().get("/0/5").then().statusCode(200).extract().header("ETag");
+		given().header("If-None-Match", pageTag).when().get("/0/5").then().statusCode(304);
+
+		Long id = given()
+			.contentType(ContentType.JSON)
+			.body(Map.of(
+				"name", "Etag Eriksson",
+				"address", "Taggvägen 1",
+				"email", "etag_" + System.currentTimeMillis() + "@example.com",
+				"telephone", "555-304"
+			))
+			.when()
+			.post("")
+			.then()
+			.statusCode(201)
+			.extract()
+			.jsonPath().getLong("id");
+
+		// Any write moves the table version
+		given().header("If-None-Match", pageTag).when().get("/0/5").then().statusCode(200);
+
+		String userTag = given().when().get("/" + id).then().statusCode(200).extract().header("ETag");
+		given().header("If-None-Match", userTag).when().get("/" + id).then().statusCode(304);
+
+		given()
+			.contentType(ContentType.JSON)
+			.body(Map.of(
+				"name", "Etag Eriksson II",
+				"address", "Taggvägen 2",
+				"email", "etag2_" + System.currentTimeMillis() + "@example.com",
+				"telephone", "555-304"
+			))
+			.when()
+			.put("/" + id)
+			.then()
+			.statusCode(200);
+
+		String updatedTag = given().header("If-None-Match", userTag).when().get("/" + id)
+			.then().statusCode(200).body("name", is("Etag Eriksson II")).extract().header("ETag");
+		assertThat(updatedTag).isNotEqualTo(userTag);
+	}
+
+	@Test
+	void testRepeatedShortSearchIsServedFromQueryCache()
+	{
+		// Too short for the in-memory index, so it reaches the cacheable repository queries
+		String path = "/0/5/search/qz";
+		float before = queryCacheRequests("hit");
+		// First with a count, then the cached count plus the content query twice
+		given().when().get(path).then().statusCode(200);
+		given().when().get(path).then().statusCode(200);
+		given().when().get(path).then().statusCode(200);
+
+		assertThat(queryCacheRequests("hit")).isGreaterThan(before);
+	}
+
+	@Test
+	void testFullTextSearchRanksAndFollowsWrites()
+	{
+		String suffix = Long.toString(System.nanoTime(), 36);
+		String word = "zq" + suffix;
+		// The word in the name outranks the same word in the address, although the address user is older
+		Long inAddress = createUser("Adam Adress", word + " 1", "ft_a_" + suffix + "@example.com");
+		Long inName = createUser("Nina " + word, "Namngatan 2", "ft_n_" + suffix + "@example.com");
+
+		given()
+			.queryParam("mode", "fulltext")
+			.when()
+			.get("/0/10/search/" + word.toUpperCase())
+			.then()
+			.statusCode(200)
+			.body("totalElements", is(2))
+			.body("content.id", equalTo(List.of(inName.intValue(), inAddress.intValue())));
+
+		given().when().delete("/" + inName).then().statusCode(204);
+		given()
+			.queryParam("mode", "fulltext")
+			.when()
+			.get("/0/10/search/" + word)
+			.then()
+			.statusCode(200)
+			.body("content.id", equalTo(List.of(inAddress.intValue())));
+	}
+
+	@Test
+	void testSuggestCompletesNewUsersAndForgetsDeletedOnes()
+	{
+		String word = "Zx" + Long.toString(System.nanoTime(), 36);
+		Long id = createUser("Sara " + word, "Förslagsgatan 1", "suggest_" + word.toLowerCase() + "@example.com");
+
+		given()
+			.queryParam("prefix", word.toLowerCase())
+			.when()
+			.get("/suggest")
+			.then()
+			.statusCode(200)
+			.body("id", equalTo(List.of(id.intValue())))
+			.body("value[0]", is("Sara " + word));
+
+		given().when().delete("/" + id).then().statusCode(204);
+		given()
+			.queryParam("prefix", word)
+			.when()
+			.get("/suggest")
+			.then()
+			.statusCode(200)
+			.body("size()", is(0));
+	}
+
+	private Long createUser(String name, String address, String email)
+	{
+		return given()
+			.contentType(ContentType.JSON)
+			.body(Map.of("name", name, "address", address, "email", email, "telephone", "555-200"))
+			.when()
+			.post("")
+			.then()
+			.statusCode(201)
+			.extract()
+			.jsonPath().getLong("id");
+	}
+
+	private float queryCacheRequests(String result)
+	{
+		return given()
+			.basePath("/actuator")
+			.when()
+			.get("/metrics/hibernate.cache.query.requests?tag=result:" + result)
+			.then()
+			.statusCode(200)
+			.extract()
+			.jsonPath()
+			.getFloat("measurements[0].value");
+	}
+
+	@Test
+	void testPrometheusScrapeHasLatencyHistograms()
+	{
+		given().when().get("/0/5").then().statusCode(200);
+
+		given()
+			.basePath("/actuator")
+			.when()
+			.get("/prometheus")
+			.then()
+			.statusCode(200)
+			.body(containsString("http_server_requests_seconds_bucket{"))
+			.body(containsString("uri=\"/digg/user/{page:"))
+			.body(containsString("spring_data_repository_invocations_seconds_bucket{"))
+			.body(containsString("method=\"findAllBy\""))
+			.body(containsString("digg_events_broadcast_seconds_bucket{"));
+	}
+
+	@Test
+	void testWebSocketChannelExecutorsExportMetrics()
+	{
+		given()
+			.basePath("/actuator")
+			.when()
+			.get("/metrics/executor.pool.max?tag=name:websocket.outbound")
+			.then()
+			.statusCode(200)
+			.body("measurements[0].value", is(8.0f));
+
+		given()
+			.basePath("/actuator")
+			.when()
+			.get("/metrics/digg.websocket.channel.saturated?tag=channel:outbound&tag=policy:CALLER_RUNS")
+			.then()
+			.statusCode(200);
+
+		given()
+			.basePath("/actuator")
+			.when()
+			.get("/metrics/digg.websocket.channel.wait?tag=channel:inbound")
+			.then()
+			.statusCode(200);
+	}
+
+	private float cacheGets(String result)
+	{
+		return given()
+			.basePath("/actuator")
+			.when()
+			.get("/metrics/cache.gets?tag=cache:users&tag=result:" + result)
+			.then()
+			.statusCode(200)
+			.extract().jsonPath().getFloat("measurements[0].value");
+	}
+
 	@Test
 	void testUpdateUser()
 	{
@@ -119,6 +373,41 @@ class UserServiceImplIntegrationTest
 			.body("name", is("Dave Updated"));
 	}
 
+	@Test
+	void testUpdateWithIfMatchRejectsStaleVersion()
+	{
+		String email = "ifmatch_" + System.currentTimeMillis() + "@example.com";
+		Map<String, Object> body = Map.of("name", "Ina Match", "address", "Road 1", "email", email, "telephone", "555-412");
+		Long id = given().contentType(ContentType.JSON).body(body).when().post("")
+			.then().statusCode(201).extract().jsonPath().getLong("id");
+		String etag = given().when().get("/" + id).then().statusCode(200).extract().header("ETag");
+
+		String next = given()
+			.contentType(ContentType.JSON)
+			.header("If-Match", etag)
+			.body(Map.of("name", "Ina Match II", "address", "Road 2", "email", email, "telephone", "555-412"))
+			.when()
+			.put("/" + id)
+			.then()
+			.statusCode(200)
+			.body("name", is("Ina Match II"))
+			.extract().header("ETag");
+		assertThat(next).isNotEqualTo(etag);
+
+		// A second writer still holding the first tag must not overwrite
+		given()
+			.contentType(ContentType.JSON)
+			.header("If-Match", etag)
+			.body(Map.of("name", "Lost Update", "address", "Road 3", "email", email, "telephone", "555-412"))
+			.when()
+			.put("/" + id)
+			.then()
+			.statusCode(412);
+
+		given().when().get("/" + id).then().statusCode(200).body("name", is("Ina Match II")).header("ETag", next);
+		given().contentType(ContentType.JSON).header("If-Match", etag).body(body).when().put("/999999999").then().statusCode(404);
+	}
+
 	@Test
 	void testCreateUserWithInvalidData()
 	{
@@ -147,6 +436,41 @@ class UserServiceImplIntegrationTest
 			.statusCode(anyOf(is(204), is(404))); // allow either based on seed data, but delete contract is 204 or 404
 	}
 
+	@Test
+	void testBulkDeleteRemovesExistingIdsAndMovesTotal()
+	{
+		String marker = "bulkdel_" + System.currentTimeMillis();
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 2; i++)
+		{
+			ids.add(given()
+				.contentType(ContentType.JSON)
+				.body(Map.of("name", "Del " + i, "address", "Road " + i, "email", marker + i + "@example.com", "telephone", "555-20" + i))
+				.when()
+				.post("")
+				.then()
+				.statusCode(201)
+				.extract().jsonPath().getLong("id"));
+		}
+		// Warm the cache so a stale entry would show up below
+		given().when().get("/" + ids.get(0)).then().statusCode(200);
+		int before = given().when().get("/0/1").then().statusCode(200).extract().jsonPath().getInt("totalElements");
+
+		given()
+			.contentType(ContentType.JSON)
+			.body(List.of(ids.get(0), ids.get(1), ids.get(1), 999_999_999L))
+			.when()
+			.post("/bulk/delete")
+			.then()
+			.statusCode(200)
+			.body("requested", is(3))
+			.body("deleted", is(2));
+
+		given().when().get("/" + ids.get(0)).then().statusCode(404);
+		given().when().delete("/" + ids.get(1)).then().statusCode(404);
+		given().when().get("/0/1").then().statusCode(200).body("totalElements", is(before - 2));
+	}
+
 	@Test
 	void testSearchReturnsCreatedUser()
 	{
@@ -177,6 +501,176 @@ class UserServiceImplIntegrationTest
 			.body("content.find { it.id == %s }.name", withArgs(id), equalTo(marker));
 	}
 
+	@Test
+	void testMaintainedTotalFollowsCreateAndDelete()
+	{
+		int before = given().when().get("/0/1").then().statusCode(200).extract().jsonPath().getInt("totalElements");
+
+		Long id =
+			given()
+				.contentType(ContentType.JSON)
+				.body(Map.of(
+					"name", "Counted",
+					"address", "Count St 1",
+					"email", "counted_" + System.currentTimeMillis() + "@example.com",
+					"telephone", "555-000"
+				))
+				.when()
+				.post("")
+				.then()
+				.statusCode(201)
+				.extract().jsonPath().getLong("id");
+
+		given().when().get("/0/1").then().statusCode(200).body("totalElements", is(before + 1));
+
+		given().when().delete("/" + id).then().statusCode(204);
+
+		given().when().get("/0/1").then().statusCode(200).body("totalElements", is(before));
+	}
+
+	@Test
+	void testSliceSearchReportsHasNextWithoutTotals()
+	{
+		String marker = "Slice_" + System.currentTimeMillis();
+		for (int i = 0; i < 2; i++)
+		{
+			given()
+				.contentType(ContentType.JSON)
+				.body(Map.of(
+					"name", marker + " " + i,
+					"address", "Slice Road " + i,
+					"email", marker.toLowerCase() + i + "@example.com",
+					"telephone", "321-" + i
+				))
+				.when()
+				.post("")
+				.then()
+				.statusCode(201);
+		}
+
+		given()
+			.queryParam("slice", true)
+			.when()
+			.get("/0/1/search/" + marker)
+			.then()
+			.statusCode(200)
+			.body("content.size()", is(1))
+			.body("hasNext", is(true))
+			.body("$", not(hasKey("totalElements")));
+	}
+
+	@Test
+	void testKeysetSearchWalksAllMatches()
+	{
+		String marker = "Seek_" + System.currentTimeMillis();
+		for (int i = 0; i < 3; i++)
+		{
+			given()
+				.contentType(ContentType.JSON)
+				.body(Map.of(
+					"name", marker + " " + i,
+					"address", "Seek Road " + i,
+					"email", marker.toLowerCase() + i + "@example.com",
+					"telephone", "123-" + i
+				))
+				.when()
+				.post("")
+				.then()
+				.statusCode(201);
+		}
+
+		// First page of two, then continue from the returned cursor
+		Long cursor =
+			given()
+				.when()
+				.get("/after/0/2/search/" + marker)
+				.then()
+				.statusCode(200)
+				.body("content.size()", is(2))
+				.body("hasNext", is(true))
+				.extract().jsonPath().getLong("nextCursor");
+
+		given()
+			.when()
+			.get("/after/" + cursor + "/2/search/" + marker)
+			.then()
+			.statusCode(200)
+			.body("content.size()", is(1))
+			.body("content[0].name", is(marker + " 2"))
+			.body("hasNext", is(false));
+	}
+
+	@Test
+	void testExportStreamsCreatedUser()
+	{
+		String email = "export_" + System.currentTimeMillis() + "@example.com";
+		given()
+			.contentType(ContentType.JSON)
+			.body(Map.of(
+				"name", "Exported",
+				"address", "Stream St 1",
+				"email", email,
+				"telephone", "555-777"
+			))
+			.when()
+			.post("")
+			.then()
+			.statusCode(201);
+
+		given()
+			.when()
+			.get("/export?format=csv")
+			.then()
+			.statusCode(200)
+			.contentType(containsString("text/csv"))
+			.body(containsString(",Exported,Stream St 1," + email + ",555-777\r\n"));
+	}
+
+	@Test
+	void testBulkCreateInsertsValidItemsAndReportsRejects()
+	{
+		String marker = "bulk_" + System.currentTimeMillis();
+		List<Map<String, String>> users = new ArrayList<>();
+		for (int i = 0; i < 120; i++)
+		{
+			users.add(Map.of("name", "Bulk " + i, "address", "Bulk Road " + i, "email", marker + i + "@example.com", "telephone", "100-" + i));
+		}
+		// Invalid email, duplicate within the request
+		users.add(Map.of("name", "Bad", "address", "Bulk Road", "email", "not-an-email", "telephone", "0"));
+		users.add(Map.of("name", "Again", "address", "Bulk Road", "email", marker + "0@example.com", "telephone", "0"));
+
+		given()
+			.contentType(ContentType.JSON)
+			.body(users)
+			.when()
+			.post("/bulk")
+			.then()
+			.statusCode(200)
+			.body("created", is(120))
+			.body("failed", is(2))
+			.body("results[0].status", is("CREATED"))
+			.body("results[120].status", is("INVALID"))
+			.body("results[121].status", is("DUPLICATE"));
+
+		// Same emails again are all rejected as existing
+		given()
+			.contentType(ContentType.JSON)
+			.body(users.subList(0, 2))
+			.when()
+			.post("/bulk")
+			.then()
+			.statusCode(200)
+			.body("created", is(0))
+			.body("results[0].errors[0]", is("email: already exists"));
+
+		given()
+			.when()
+			.get("/0/10/search/" + marker)
+			.then()
+			.statusCode(200)
+			.body("totalElements", is(120));
+	}
+
 	@Test
 	void testPostUpsertUpdateNotFoundReturns404()
 	{
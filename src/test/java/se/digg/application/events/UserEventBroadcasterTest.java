@@ -0,0 +1,110 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import se.digg.application.model.User;
+
+class UserEventBroadcasterTest
+{
+	private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private UserEventBroadcaster broadcaster;
+
+	@AfterEach
+	void tearDown()
+	{
+		broadcaster.shutdown();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void mergesChangesWithinWindowIntoOneBroadcast()
+	{
+		broadcaster = new UserEventBroadcaster(messagingTemplate, meterRegistry, Duration.ofMillis(100), 500);
+
+		broadcaster.publish(UserEvent.ADD, 1L);
+		broadcaster.publish(UserEvent.EDIT, 2L);
+		broadcaster.publish(UserEvent.DELETE, 3L);
+
+		ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+		verify(messagingTemplate, timeout(2000).times(1)).convertAndSend(eq(UserEventBroadcaster.TOPIC), payload.capture());
+		Map<String, Object> sent = (Map<String, Object>) payload.getValue();
+		assertThat(sent.get("event")).isEqualTo(UserEvent.BATCH);
+		assertThat(sent.get("count")).isEqualTo(3);
+		assertThat((List<Map<String, Object>>) sent.get("changes"))
+			.extracting(c -> c.get("id"))
+			.containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void numbersChangesConsecutivelyAcrossBroadcasts()
+	{
+		broadcaster = new UserEventBroadcaster(messagingTemplate, meterRegistry, Duration.ZERO, 500);
+		User user = new User(7L, "Kajsa Anka", "Vägen 13, 67421 Staden", "kajsa@acme.org", "070-0701100");
+
+		broadcaster.publish(UserEvent.ADD, user);
+		broadcaster.publish(UserEvent.DELETE, List.of(8L, 9L));
+
+		ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+		verify(messagingTemplate, times(2)).convertAndSend(eq(UserEventBroadcaster.TOPIC), payload.capture());
+		Map<String, Object> added = (Map<String, Object>) payload.getAllValues().get(0);
+		Map<String, Object> deleted = (Map<String, Object>) payload.getAllValues().get(1);
+		assertThat(added).containsEntry("fromVersion", 1L).containsEntry("version", 1L);
+		assertThat(((List<Map<String, Object>>) added.get("changes")).get(0))
+			.containsEntry("id", 7L)
+			.containsEntry("user", user);
+		assertThat(deleted).containsEntry("fromVersion", 2L).containsEntry("version", 3L);
+		assertThat(((List<Map<String, Object>>) deleted.get("changes")).get(1))
+			.containsEntry("id", 9L)
+			.doesNotContainKey("user");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void keepsEventTypeWhenAllChangesAgreeAndDropsListPastCap()
+	{
+		broadcaster = new UserEventBroadcaster(messagingTemplate, meterRegistry, Duration.ofMillis(100), 2);
+
+		broadcaster.publish(UserEvent.ADD, List.of(1L, 2L, 3L));
+
+		ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+		verify(messagingTemplate, timeout(2000).times(1)).convertAndSend(eq(UserEventBroadcaster.TOPIC), payload.capture());
+		Map<String, Object> sent = (Map<String, Object>) payload.getValue();
+		assertThat(sent.get("event")).isEqualTo(UserEvent.ADD);
+		assertThat(sent.get("count")).isEqualTo(3);
+		assertThat(sent).doesNotContainKey("changes");
+	}
+
+	@Test
+	void sendsImmediatelyWithoutWindow()
+	{
+		broadcaster = new UserEventBroadcaster(messagingTemplate, meterRegistry, Duration.ZERO, 500);
+
+		broadcaster.publish(UserEvent.ADD, 1L);
+		broadcaster.publish(UserEvent.ADD, 2L);
+
+		verify(messagingTemplate, times(2)).convertAndSend(eq(UserEventBroadcaster.TOPIC), any(Object.class));
+		assertThat(meterRegistry.timer("digg.events.broadcast", "event", "ADD").count()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import se.digg.application.config.HibernateCacheConfig;
+import se.digg.application.model.User;
+
+/**
+ * The access path H2 picks for the SQL of each {@link UserRepository} method, from {@code EXPLAIN} of the
+ * statements the method actually sends, with the same parameters.
+ * <p>
+ * Lookups by id and email and the prefix lookups must seek on an index; substring searches scan the table by
+ * design, which is what the in-memory search indexes are for.
+ */
+@DataJpaTest
+@Import({HibernateCacheConfig.class, UserRepositoryQueryPlanTest.ExplainConfig.class})
+class UserRepositoryQueryPlanTest
+{
+	private static final String TABLE_SCAN = "USERS.tableScan";
+	private static final String PRIMARY_KEY = "PUBLIC.PRIMARY_KEY";
+	private static final String EMAIL_INDEX = "PUBLIC.USERS_EMAIL_UK";
+	private static final String NAME_LOWER_INDEX = "PUBLIC.USERS_NAME_LOWER_IDX";
+	private static final String EMAIL_LOWER_INDEX = "PUBLIC.USERS_EMAIL_LOWER_IDX";
+	private static final String INDEX_SORTED = "index sorted";
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlanRecorder plans;
+
+	@BeforeEach
+	void setUp()
+	{
+		userRepository.saveAllAndFlush(IntStream.range(0, 200)
+			.mapToObj(i -> new User("Name " + i, "Street " + i, "user" + i + "@example.com", "070-" + i))
+			.toList());
+	}
+
+	@Test
+	void idLookupsSeekOnPrimaryKey()
+	{
+		long id = userRepository.findAll(PageRequest.of(0, 1)).getContent().get(0).getId();
+		User user = userRepository.findById(id).orElseThrow();
+
+		assertThat(plansOf(() -> userRepository.findByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, 10))))
+			.singleElement().asString().contains(PRIMARY_KEY, "ID > ", INDEX_SORTED);
+		assertThat(plansOf(() -> userRepository.queryUsersAfter("name", id, PageRequest.of(0, 10))))
+			.singleElement().asString().contains(PRIMARY_KEY, "ID > ", INDEX_SORTED);
+		assertThat(plansOf(() -> userRepository.update(id, null, user)))
+			.singleElement().asString().contains(PRIMARY_KEY, "ID = ");
+		assertThat(plansOf(() -> userRepository.deleteUserById(id)))
+			.singleElement().asString().contains(PRIMARY_KEY, "ID = ");
+		assertThat(plansOf(() -> userRepository.deleteUsersByIdIn(List.of(id + 1, id + 2))))
+			.singleElement().asString().contains(PRIMARY_KEY, "ID IN(");
+	}
+
+	@Test
+	void defaultOrderReadsThePrimaryKeyInOrder()
+	{
+		assertThat(plansOf(() ->
+			{
+				try (Stream<User> users = userRepository.streamAllBy())
+				{
+					users.findFirst();
+				}
+			}))
+			.singleElement().asString().contains(PRIMARY_KEY, INDEX_SORTED);
+		assertThat(plansOf(() -> userRepository.findAllBy(PageRequest.of(0, 10, Sort.by("id")))))
+			.singleElement().asString().contains(PRIMARY_KEY, INDEX_SORTED);
+	}
+
+	@Test
+	void emailLookupsSeekOnUniqueIndex()
+	{
+		assertThat(plansOf(() -> userRepository.findByEmail("user7@example.com")))
+			.singleElement().asString().contains(EMAIL_INDEX, "EMAIL = ");
+		assertThat(plansOf(() -> userRepository.findExistingEmails(Set.of("user7@example.com", "user8@example.com"))))
+			.singleElement().asString().contains(EMAIL_INDEX, "EMAIL IN(");
+	}
+
+	@Test
+	void prefixLookupsSeekOnLowerCaseIndexes()
+	{
+		assertThat(plansOf(() -> userRepository.findByNameLowerStartingWith("name 1", PageRequest.of(0, 10, Sort.by("nameLower", "id")))))
+			.singleElement().asString().contains(NAME_LOWER_INDEX, "NAME_LOWER >= ", INDEX_SORTED);
+		assertThat(plansOf(() -> userRepository.findByEmailLowerStartingWith("user1", PageRequest.of(0, 10, Sort.by("emailLower", "id")))))
+			.singleElement().asString().contains(EMAIL_LOWER_INDEX, "EMAIL_LOWER >= ", INDEX_SORTED);
+	}
+
+	@Test
+	void substringSearchesScanTheTable()
+	{
+		assertThat(plansOf(() -> userRepository.findByNameContainingIgnoreCase("ame 1")))
+			.singleElement().asString().contains(TABLE_SCAN);
+		// Page content, then the count
+		assertThat(plansOf(() -> userRepository.queryUsers("ame 1", PageRequest.of(0, 10))))
+			.hasSize(2).allSatisfy(plan -> assertThat(plan).contains(TABLE_SCAN));
+		assertThat(plansOf(() -> userRepository.queryUsersSlice("ame 1", PageRequest.of(0, 10))))
+			.singleElement().asString().contains(TABLE_SCAN);
+	}
+
+	@Test
+	void unsortedPagesScanTheTable()
+	{
+		// Page content, then the count, which H2 answers from the narrowest index
+		assertThat(plansOf(() -> userRepository.findAll(PageRequest.of(1, 10)))).hasSize(2)
+			.first().asString().contains(TABLE_SCAN);
+		assertThat(plansOf(() -> userRepository.findAllBy(PageRequest.of(1, 10))))
+			.singleElement().asString().contains(TABLE_SCAN);
+		assertThat(plansOf(() -> userRepository.findSliceBy(PageRequest.of(1, 10))))
+			.singleElement().asString().contains(TABLE_SCAN);
+	}
+
+	private List<String> plansOf(Runnable repositoryCall)
+	{
+		plans.clear();
+		repositoryCall.run();
+		return plans.get();
+	}
+
+	@TestConfiguration
+	static class ExplainConfig
+	{
+		@Bean
+		PlanRecorder planRecorder()
+		{
+			return new PlanRecorder();
+		}
+
+		@Bean
+		static BeanPostProcessor explainingDataSource()
+		{
+			return new BeanPostProcessor()
+			{
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName)
+				{
+					return bean instanceof DataSource dataSource ? PlanRecorder.wrap(dataSource) : bean;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Runs every query, update and delete a second time as {@code EXPLAIN}, on the same connection and with the
+	 * same parameters, and keeps the plans in order.
+	 */
+	static final class PlanRecorder
+	{
+		private static final List<String> PLANS = new ArrayList<>();
+
+		void clear()
+		{
+			synchronized (PLANS)
+			{
+				PLANS.clear();
+			}
+		}
+
+		List<String> get()
+		{
+			synchronized (PLANS)
+			{
+				return List.copyOf(PLANS);
+			}
+		}
+
+		static DataSource wrap(DataSource dataSource)
+		{
+			return proxy(DataSource.class, (method, args) ->
+			{
+				Object result = invoke(dataSource, method, args);
+				return result instanceof Connection connection ? wrap(connection) : result;
+			});
+		}
+
+		private static Connection wrap(Connection connection)
+		{
+			return proxy(Connection.class, (method, args) ->
+			{
+				Object result = invoke(connection, method, args);
+				if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement"))
+				{
+					return wrap(statement, (String) args[0], connection);
+				}
+				return result;
+			});
+		}
+
+		private static PreparedStatement wrap(PreparedStatement statement, String sql, Connection connection)
+		{
+			List<Object[]> parameters = new ArrayList<>();
+			return proxy(PreparedStatement.class, (method, args) ->
+			{
+				String name = method.getName();
+				if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+				{
+					parameters.add(new Object[]{method, args});
+				}
+				else if (name.equals("clearParameters"))
+				{
+					parameters.clear();
+				}
+				else if (name.startsWith("execute") && explainable(sql))
+				{
+					explain(sql, parameters, connection);
+				}
+				return invoke(statement, method, args);
+			});
+		}
+
+		private static boolean explainable(String sql)
+		{
+			String verb = sql.stripLeading().toLowerCase(Locale.ROOT);
+			return verb.startsWith("select") || verb.startsWith("update") || verb.startsWith("delete");
+		}
+
+		private static void explain(String sql, List<Object[]> parameters, Connection connection) throws Throwable
+		{
+			try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql))
+			{
+				for (Object[] parameter : parameters)
+				{
+					invoke(explain, (Method) parameter[0], (Object[]) parameter[1]);
+				}
+				try (ResultSet plan = explain.executeQuery())
+				{
+					plan.next();
+					synchronized (PLANS)
+					{
+						PLANS.add(plan.getString(1));
+					}
+				}
+			}
+		}
+
+		private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+		{
+			try
+			{
+				return method.invoke(target, args);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T proxy(Class<T> type, Handler handler)
+		{
+			InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(method, args);
+			return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+		}
+
+		@FunctionalInterface
+		private interface Handler
+		{
+			Object handle(Method method, Object[] args) throws Throwable;
+		}
+	}
+}
@@ -7,20 +7,32 @@
  */
 package se.digg.application.repository;
 
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import se.digg.application.config.HibernateCacheConfig;
 import se.digg.application.model.User;
 
 @DataJpaTest
+@Import(HibernateCacheConfig.class)
 class UserRepositoryTest
 {
 
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
 	@Test
 	void uniqueEmailConstraintIsEnforced()
 	{
@@ -31,4 +43,29 @@ class UserRepositoryTest
 
 		assertThatThrownBy(() -> userRepository.saveAndFlush(u2)).isInstanceOf(DataIntegrityViolationException.class);
 	}
-}
\ No newline at end of file
+
+	// Without the test transaction, so every repository call commits and reaches the second-level cache
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void entityRegionServesLoadsByIdUntilABulkWrite()
+	{
+		List<User> users = userRepository.saveAll(List.of(
+			new User("Region One", "Addr 1", "region1@example.com", "111"),
+			new User("Region Two", "Addr 2", "region2@example.com", "222")));
+		Long first = users.get(0).getId();
+		Long second = users.get(1).getId();
+		Cache cache = entityManagerFactory.getCache();
+		cache.evict(User.class);
+
+		userRepository.findAllById(List.of(first, second));
+
+		assertThat(cache.contains(User.class, first)).isTrue();
+		assertThat(cache.contains(User.class, second)).isTrue();
+
+		// A JPQL bulk statement does not say which rows it touched, so the whole region goes
+		userRepository.deleteUserById(second);
+
+		assertThat(cache.contains(User.class, first)).isFalse();
+		userRepository.deleteUserById(first);
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.nio.file.Path;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.digg.application.Application;
+import se.digg.application.repository.UserRepository;
+
+/**
+ * Restarts on the same database file ({@code persistent} profile) with a higher mock data count.
+ */
+class MockDataServiceRestartTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void restartWithHigherCountSeedsOnlyTheShortfall()
+	{
+		String storageEpoch;
+		try (ConfigurableApplicationContext context = start(500, "1"))
+		{
+			assertThat(context.getBean(UserRepository.class).count()).isEqualTo(500);
+			storageEpoch = context.getBean(UserService.class).storageEpoch();
+		}
+		// Same seed: the generated emails repeat those already stored
+		try (ConfigurableApplicationContext context = start(1000, "1"))
+		{
+			assertThat(context.getBean(UserRepository.class).count()).isEqualTo(1000);
+			// Stored user versions, and so the per-user ETags, stay valid across the restart
+			assertThat(context.getBean(UserService.class).storageEpoch()).isNotBlank().isEqualTo(storageEpoch);
+		}
+		// Random seed: its emails can collide with any stored row
+		try (ConfigurableApplicationContext context = start(1500, ""))
+		{
+			assertThat(context.getBean(UserRepository.class).count()).isEqualTo(1500);
+		}
+	}
+
+	private ConfigurableApplicationContext start(int count, String seed)
+	{
+		return new SpringApplicationBuilder(Application.class).run(
+			"--spring.profiles.active=persistent",
+			"--digg.storage.path=" + directory.resolve("diggdb"),
+			"--digg.mock-data.count=" + count,
+			"--digg.mock-data.seed=" + seed,
+			"--server.port=0",
+			"--spring.main.banner-mode=off");
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static java.util.Map.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+class UserFullTextIndexTest
+{
+	private UserFullTextIndex index;
+
+	@BeforeEach
+	void setUp()
+	{
+		UserRepository repository = mock(UserRepository.class);
+		when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(
+			new User(1L, "Kajsa Anka", "Vägen 13, 67421 Staden", "kajsa@acme.org", "070-0701100"),
+			new User(2L, "Kalle Anka", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"),
+			new User(3L, "Ludde Luddson", "Ankvägen 13, 67421 Staden", "ludde@anka.org", "070-0001100")
+		));
+
+		index = new UserFullTextIndex(repository, true);
+		index.rebuild();
+	}
+
+	@Test
+	void matchesWholeWordsCaseInsensitively()
+	{
+		assertThat(index.search("KALLE")).containsExactly(2L);
+		assertThat(index.search("kal")).isEmpty();
+		assertThat(index.search("0702200")).containsExactly(2L);
+	}
+
+	@Test
+	void requiresEveryWord()
+	{
+		assertThat(index.search("anka 13")).containsExactlyInAnyOrder(1L, 3L);
+		assertThat(index.search("anka staden 31")).containsExactly(2L);
+		assertThat(index.search("anka nowhere")).isEmpty();
+		assertThat(index.search(" .@- ")).isEmpty();
+	}
+
+	@Test
+	void ranksNameAboveEmailAboveAddress()
+	{
+		// Name for 1 and 2 (equal scores, so by id), email domain for 3
+		assertThat(index.search("anka")).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	void limitedSearchKeepsTheBestAndCountsAllMatches()
+	{
+		assertThat(index.search("anka", 2).ids()).containsExactly(1L, 2L);
+		assertThat(index.search("anka", 2).matches()).isEqualTo(3);
+		assertThat(index.search("anka", 0).ids()).isEmpty();
+		assertThat(index.search("anka", 0).matches()).isEqualTo(3);
+		assertThat(index.search("nowhere", 10).matches()).isZero();
+	}
+
+	@Test
+	void limitedSearchIsAPrefixOfTheFullRanking()
+	{
+		UserRepository repository = mock(UserRepository.class);
+		Random random = new Random(7);
+		List<User> users = new ArrayList<>();
+		for (long id = 1; id <= 500; id++)
+		{
+			// Few distinct names and streets, so scores tie often and ids have to break them
+			users.add(new User(id, "Anka " + random.nextInt(5), "Gatan " + random.nextInt(3), "u" + id + "@anka.org", "070-" + id));
+		}
+		when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(users);
+		UserFullTextIndex large = new UserFullTextIndex(repository, true);
+		large.rebuild();
+
+		long[] all = large.search("anka gatan");
+		assertThat(all).hasSize(500);
+		for (int limit : new int[]{1, 7, 20, 499, 500, 1000})
+		{
+			UserFullTextIndex.Ranked ranked = large.search("anka gatan", limit);
+			assertThat(ranked.ids()).containsExactly(Arrays.copyOf(all, Math.min(limit, all.length)));
+			assertThat(ranked.matches()).isEqualTo(500);
+		}
+	}
+
+	@Test
+	void tracksWrites()
+	{
+		index.onUserUpdated(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+		index.onUserCreated(new User(4L, "Knatte Anka", "Vägen 1, 67422 Staden", "knatte@acme.org", "070-0703300"));
+		index.onUserDeleted(1L);
+
+		assertThat(index.search("anka")).containsExactly(4L, 3L);
+		assertThat(index.search("ankeborg")).containsExactly(2L);
+		assertThat(index.search("kajsa")).isEmpty();
+	}
+
+	@Test
+	void dropsUpdatesArrivingAfterANewerOne()
+	{
+		index.onUserUpdated(versioned(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 5));
+		index.onUserUpdated(versioned(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 4));
+		index.onUserUpdated(versioned(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 5));
+
+		assertThat(index.search("ankeborg")).containsExactly(2L);
+		assertThat(index.search("stale")).isEmpty();
+
+		// An update without a version always applies
+		index.onUserUpdated(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+
+		assertThat(index.search("stale")).containsExactly(2L);
+	}
+
+	@Test
+	void splitsOnAnythingButLettersAndDigits()
+	{
+		assertThat(UserFullTextIndex.tokenize("Kalle.Anka@acme.org, 070-070 Anka"))
+			.containsExactly(entry("kalle", 1), entry("anka", 2), entry("acme", 1), entry("org", 1), entry("070", 2));
+	}
+
+	private static User versioned(User user, long version)
+	{
+		user.setVersion(version);
+		return user;
+	}
+}
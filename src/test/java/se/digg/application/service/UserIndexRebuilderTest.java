@@ -0,0 +1,70 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import org.mockito.stubbing.Answer;
+
+class UserIndexRebuilderTest
+{
+	@Test
+	void rebuildsAllIndexesInParallelOffTheCallingThread() throws Exception
+	{
+		UserSearchIndex searchIndex = mock(UserSearchIndex.class);
+		UserFullTextIndex fullTextIndex = mock(UserFullTextIndex.class);
+		UserSuggestIndex suggestIndex = mock(UserSuggestIndex.class);
+		// Each rebuild only finishes once all three have started, which they can only do side by side
+		CountDownLatch started = new CountDownLatch(3);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		Answer<Void> rebuild = invocation ->
+		{
+			threads.add(Thread.currentThread());
+			started.countDown();
+			assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+			return null;
+		};
+		doAnswer(rebuild).when(searchIndex).rebuild();
+		doAnswer(rebuild).when(fullTextIndex).rebuild();
+		doAnswer(rebuild).when(suggestIndex).rebuild();
+		UserIndexRebuilder rebuilder = new UserIndexRebuilder(searchIndex, fullTextIndex, suggestIndex);
+
+		rebuilder.rebuildAll();
+
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(rebuilder.rebuilt()).isNotDone();
+		release.countDown();
+		rebuilder.rebuilt().get(10, TimeUnit.SECONDS);
+		assertThat(threads).hasSize(3).doesNotHaveDuplicates().doesNotContain(Thread.currentThread());
+		rebuilder.shutdown();
+	}
+
+	@Test
+	void failedRebuildCompletesExceptionally() throws Exception
+	{
+		UserSearchIndex searchIndex = mock(UserSearchIndex.class);
+		doAnswer(invocation ->
+			{
+				throw new IllegalStateException("database gone");
+			})
+			.when(searchIndex).rebuild();
+		UserIndexRebuilder rebuilder = new UserIndexRebuilder(searchIndex, mock(UserFullTextIndex.class), mock(UserSuggestIndex.class));
+
+		rebuilder.rebuildAll();
+
+		assertThat(rebuilder.rebuilt()).failsWithin(10, TimeUnit.SECONDS);
+		rebuilder.shutdown();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+class UserSearchIndexTest
+{
+	private UserSearchIndex index;
+
+	@BeforeEach
+	void setUp()
+	{
+		UserRepository repository = mock(UserRepository.class);
+		when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(
+			new User(1L, "Kajsa Anka", "Vägen 13, 67421 Staden", "kajsa@acme.org", "070-0701100"),
+			new User(2L, "Kalle Anka", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"),
+			new User(3L, "Ludde Luddson", "Hittepåvägen 13, 67421 Staden", "ludde@ludd.org", "070-0001100")
+		));
+
+		index = new UserSearchIndex(repository, true);
+		index.rebuild();
+	}
+
+	@Test
+	void matchesSubstringCaseInsensitivelyAcrossFields()
+	{
+		assertThat(index.search("ANKA")).containsExactly(1L, 2L);
+		assertThat(index.search("acme.org")).containsExactly(1L, 2L);
+		assertThat(index.search("påväg")).containsExactly(3L);
+		assertThat(index.search("0702200")).containsExactly(2L);
+	}
+
+	@Test
+	void verifiesCandidatesWhoseTrigramsAreNotAdjacent()
+	{
+		// "kal" and "lle" both occur in user 2 only as "kalle"; "kallle" is not a substring anywhere
+		assertThat(index.search("kallle")).isEmpty();
+	}
+
+	@Test
+	void doesNotMatchAcrossFieldBoundaries()
+	{
+		// name ends with "anka", email starts with "kajsa"
+		assertThat(index.search("ankakajsa")).isEmpty();
+	}
+
+	@Test
+	void tracksWrites()
+	{
+		index.onUserUpdated(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+		index.onUserCreated(new User(4L, "Knatte Anka", "Vägen 1, 67422 Staden", "knatte@acme.org", "070-0703300"));
+		index.onUserDeleted(1L);
+
+		assertThat(index.search("anka")).containsExactly(4L);
+		assertThat(index.search("ankeborg")).containsExactly(2L);
+		assertThat(index.search("kajsa")).isEmpty();
+	}
+
+	@Test
+	void dropsUpdatesArrivingAfterANewerOne()
+	{
+		index.onUserUpdated(versioned(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 5));
+		index.onUserUpdated(versioned(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 4));
+		index.onUserUpdated(versioned(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 5));
+
+		assertThat(index.search("ankeborg")).containsExactly(2L);
+		assertThat(index.search("stale")).isEmpty();
+
+		// An update without a version always applies
+		index.onUserUpdated(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+
+		assertThat(index.search("stale")).containsExactly(2L);
+	}
+
+	@Test
+	void leavesShortQueriesToTheDatabase()
+	{
+		assertThat(index.canAnswer("an")).isFalse();
+		assertThat(index.canAnswer("ank")).isTrue();
+	}
+
+	private static User versioned(User user, long version)
+	{
+		user.setVersion(version);
+		return user;
+	}
+}
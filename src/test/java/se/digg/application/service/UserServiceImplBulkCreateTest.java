@@ -0,0 +1,137 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.digg.application.api.BulkItemResult;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+/**
+ * Bulk create against the real database, with another transaction committing one of the emails between the
+ * existence check and the insert.
+ */
+@SpringBootTest
+@Import(UserServiceImplBulkCreateTest.ListenerConfig.class)
+class UserServiceImplBulkCreateTest
+{
+	@Autowired
+	private UserServiceImpl userService;
+
+	@SpyBean
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private RecordingListener listener;
+
+	@Test
+	void concurrentlyCommittedEmailIsReportedPerItem()
+	{
+		String marker = "bulkrace" + System.nanoTime();
+		List<User> users = List.of(
+			new User("Race A", "Street 1", marker + "a@example.com", "070-1"),
+			new User("Race B", "Street 2", marker + "b@example.com", "070-2"),
+			new User("Race C", "Street 3", marker + "c@example.com", "070-3"));
+		AtomicBoolean raced = new AtomicBoolean();
+		// The repository is a JDK proxy, so the spy reaches it through its default answer, not callRealMethod()
+		Answer<?> repository = mockingDetails(userRepository).getMockCreationSettings().getDefaultAnswer();
+		doAnswer(invocation ->
+			{
+				Object existing = repository.answer(invocation);
+				if (raced.compareAndSet(false, true))
+				{
+					insertElsewhere(new User("Racer", "Street 9", marker + "b@example.com", "070-9"));
+				}
+				return existing;
+			})
+			.when(userRepository).findExistingEmails(anyCollection());
+		listener.clear();
+
+		List<BulkItemResult> results = userService.createUsers(users);
+
+		assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(
+			BulkItemResult.Status.CREATED, BulkItemResult.Status.DUPLICATE, BulkItemResult.Status.CREATED);
+		assertThat(results.get(1).getErrors()).containsExactly("email: already exists");
+		assertThat(userRepository.findExistingEmails(List.of(marker + "a@example.com", marker + "c@example.com"))).hasSize(2);
+		assertThat(listener.created).extracting(User::getEmail).containsExactly(marker + "a@example.com", marker + "c@example.com");
+		assertThat(listener.createdInTransaction).isFalse();
+	}
+
+	private void insertElsewhere(User user)
+	{
+		TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+		requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		requiresNew.executeWithoutResult(status -> userRepository.saveAndFlush(user));
+	}
+
+	@TestConfiguration
+	static class ListenerConfig
+	{
+		@Bean
+		RecordingListener recordingListener()
+		{
+			return new RecordingListener();
+		}
+	}
+
+	static class RecordingListener implements UserChangeListener
+	{
+		final List<User> created = new ArrayList<>();
+		boolean createdInTransaction;
+
+		void clear()
+		{
+			created.clear();
+			createdInTransaction = false;
+		}
+
+		@Override
+		public void onUserCreated(User user)
+		{
+			created.add(user);
+			createdInTransaction |= TransactionSynchronizationManager.isActualTransactionActive();
+		}
+
+		@Override
+		public void onUserUpdated(User user)
+		{
+		}
+
+		@Override
+		public void onUserDeleted(Long id)
+		{
+		}
+
+		@Override
+		public void onUsersDeleted(Collection<Long> ids, int deleted)
+		{
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.service;
+
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import se.digg.application.api.Suggestion;
+import se.digg.application.model.User;
+import se.digg.application.repository.UserRepository;
+
+class UserSuggestIndexTest
+{
+	private UserRepository repository;
+	private UserSuggestIndex index;
+
+	@BeforeEach
+	void setUp()
+	{
+		repository = mock(UserRepository.class);
+		when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(
+			new User(1L, "Kajsa Anka", "Vägen 13, 67421 Staden", "kajsa@acme.org", "070-0701100"),
+			new User(2L, "Kalle Anka", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"),
+			new User(3L, "Anders Andersson", "Hittepåvägen 13, 67421 Staden", "ludde@ludd.org", "070-0001100")
+		));
+
+		index = new UserSuggestIndex(repository);
+		index.rebuild();
+	}
+
+	@Test
+	void isReadyOnceBuilt()
+	{
+		UserSuggestIndex fresh = new UserSuggestIndex(repository);
+		assertThat(fresh.isReady()).isFalse();
+
+		fresh.rebuild();
+
+		assertThat(fresh.isReady()).isTrue();
+		assertThat(index.isReady()).isTrue();
+	}
+
+	@Test
+	void completesNamesWordsOfNamesAndEmailsInKeyOrder()
+	{
+		assertThat(values(index.suggest("KA", 10))).containsExactly("Kajsa Anka", "kajsa@acme.org", "Kalle Anka", "kalle@acme.org");
+		assertThat(values(index.suggest("ank", 10))).containsExactly("Kajsa Anka", "Kalle Anka");
+		assertThat(index.suggest("ludde@", 10))
+			.extracting(Suggestion::getId, Suggestion::getField)
+			.containsExactly(tuple(3L, Suggestion.Field.EMAIL));
+	}
+
+	@Test
+	void suggestsEachUserOnceEvenWhenSeveralWordsMatch()
+	{
+		assertThat(values(index.suggest("and", 10))).containsExactly("Anders Andersson");
+	}
+
+	@Test
+	void stopsAtLimit()
+	{
+		assertThat(index.suggest("k", 2)).hasSize(2);
+		assertThat(index.suggest(" ", 10)).isEmpty();
+		assertThat(index.suggest("x", 10)).isEmpty();
+	}
+
+	@Test
+	void tracksWrites()
+	{
+		index.onUserUpdated(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+		index.onUserCreated(new User(4L, "Knatte Anka", "Vägen 1, 67422 Staden", "knatte@acme.org", "070-0703300"));
+		index.onUserDeleted(1L);
+
+		assertThat(values(index.suggest("anka", 10))).containsExactly("Knatte Anka");
+		assertThat(values(index.suggest("ankeb", 10))).containsExactly("Kalle Ankeborg");
+		assertThat(index.suggest("kajsa", 10)).isEmpty();
+	}
+
+	@Test
+	void dropsUpdatesArrivingAfterANewerOne()
+	{
+		index.onUserUpdated(versioned(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 5));
+		index.onUserUpdated(versioned(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 4));
+		index.onUserUpdated(versioned(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"), 5));
+
+		assertThat(values(index.suggest("ankeb", 10))).containsExactly("Kalle Ankeborg");
+		assertThat(index.suggest("stale", 10)).isEmpty();
+
+		// An update without a version always applies
+		index.onUserUpdated(new User(2L, "Kalle Stale", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+
+		assertThat(values(index.suggest("stale", 10))).containsExactly("Kalle Stale");
+	}
+
+	@Test
+	void keepsAnswersAcrossOverlayMerges()
+	{
+		for (long id = 10; id < 10 + 3L * UserSuggestIndex.MAX_OVERLAY; id++)
+		{
+			index.onUserCreated(new User(id, "Farbror Joakim " + id, "Pengabingen 1, 67422 Staden", "joakim" + id + "@acme.org", "070-0704400"));
+		}
+		index.onUserUpdated(new User(2L, "Kalle Ankeborg", "Vägen 31, 67422 Staden", "kalle@acme.org", "070-0702200"));
+		index.onUserDeleted(10L);
+		for (long id = 11; id < 10 + 3L * UserSuggestIndex.MAX_OVERLAY; id += 2)
+		{
+			index.onUserDeleted(id);
+		}
+
+		assertThat(values(index.suggest("ka", 10))).containsExactly("Kajsa Anka", "kajsa@acme.org", "Kalle Ankeborg", "kalle@acme.org");
+		assertThat(values(index.suggest("joakim 1", 3))).containsExactly("Farbror Joakim 100", "Farbror Joakim 1000", "Farbror Joakim 1002");
+		assertThat(index.suggest("joakim11@", 10)).isEmpty();
+		assertThat(index.suggest("farbror", Integer.MAX_VALUE)).hasSize(3 * UserSuggestIndex.MAX_OVERLAY / 2 - 1);
+	}
+
+	private static List<String> values(List<Suggestion> suggestions)
+	{
+		return suggestions.stream().map(Suggestion::getValue).toList();
+	}
+
+	private static User versioned(User user, long version)
+	{
+		user.setVersion(version);
+		return user;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.util.Duration;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeduplicationFilterTest
+{
+	private final LoggerContext context = new LoggerContext();
+	private final Logger logger = context.getLogger("dedup");
+	private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+	private final DeduplicationFilter filter = new DeduplicationFilter();
+
+	@BeforeEach
+	void setUp()
+	{
+		logger.setLevel(Level.INFO);
+		appender.setContext(context);
+		appender.start();
+		logger.addAppender(appender);
+		filter.setContext(context);
+		filter.setCapacity(16);
+		// Flushed by hand below
+		filter.setSummaryInterval(Duration.buildByHours(1));
+		filter.start();
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		filter.stop();
+	}
+
+	@Test
+	void letsFirstThroughAndSummarizesRepeats()
+	{
+		Throwable error = new IllegalStateException("boom");
+
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.NEUTRAL);
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.DENY);
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.DENY);
+		// Same trace under another message is a different entry
+		assertThat(decide("Export failed", error)).isEqualTo(FilterReply.NEUTRAL);
+
+		filter.flush();
+
+		assertThat(appender.list).singleElement()
+			.satisfies(e -> assertThat(e.getFormattedMessage()).startsWith("Suppressed 2 repeat(s) of \"Request failed\""));
+	}
+
+	@Test
+	void forgetsTracesWithoutRepeatsForAWholeInterval()
+	{
+		Throwable error = new IllegalStateException("boom");
+		decide("Request failed", error);
+		decide("Request failed", error);
+
+		filter.flush();
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.DENY);
+		filter.flush();
+		filter.flush();
+
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.NEUTRAL);
+	}
+
+	@Test
+	void ignoresUnmarkedAndDebugLogging()
+	{
+		Throwable error = new IllegalStateException("boom");
+		decide("Request failed", error);
+
+		assertThat(filter.decide(null, logger, Level.ERROR, "Request failed", null, error)).isEqualTo(FilterReply.NEUTRAL);
+		logger.setLevel(Level.DEBUG);
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.NEUTRAL);
+	}
+
+	@Test
+	void keepsWorkingWhenTableOverflows()
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			assertThat(decide("Failure " + i, new IllegalStateException())).isEqualTo(FilterReply.NEUTRAL);
+		}
+		Throwable error = new IllegalStateException("boom");
+		decide("Request failed", error);
+
+		assertThat(decide("Request failed", error)).isEqualTo(FilterReply.DENY);
+	}
+
+	private FilterReply decide(String message, Throwable throwable)
+	{
+		return filter.decide(DeduplicationFilter.DEDUPLICATE, logger, Level.ERROR, message, null, throwable);
+	}
+}
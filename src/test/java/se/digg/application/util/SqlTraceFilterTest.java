@@ -0,0 +1,78 @@
+/*
+ *   Copyright (c) HAN, 2025
+ *   Licensed under the EUPL-1.2-or-later, with extension of article 5
+ *   (compatibility clause) to any licence for distributing derivative works
+ *   that have been produced by the normal use of the Work as a library.
+ *   See the LICENSE file for the full details of EUPL-1.2
+ */
+package se.digg.application.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class SqlTraceFilterTest
+{
+	private final LoggerContext context = new LoggerContext();
+	private final Logger sql = context.getLogger(SqlTraceFilter.SQL_LOGGER);
+	private final Logger bind = context.getLogger(SqlTraceFilter.BIND_LOGGER);
+	private final Logger other = context.getLogger("se.digg.application");
+
+	@BeforeEach
+	void setUp()
+	{
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+		SqlTraceFilter filter = new SqlTraceFilter();
+		filter.setContext(context);
+		filter.start();
+		context.addTurboFilter(filter);
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		context.stop();
+	}
+
+	@Test
+	void enablesSqlAndBindLoggingOnlyWhileTracing()
+	{
+		assertThat(sql.isDebugEnabled()).isFalse();
+
+		SqlTraceFilter.begin("GET /digg/user/1");
+		try
+		{
+			assertThat(MDC.get(SqlTraceFilter.MDC_KEY)).isEqualTo("GET /digg/user/1");
+			assertThat(sql.isDebugEnabled()).isTrue();
+			assertThat(bind.isTraceEnabled()).isTrue();
+			assertThat(other.isDebugEnabled()).isFalse();
+		}
+		finally
+		{
+			SqlTraceFilter.end();
+		}
+
+		assertThat(sql.isDebugEnabled()).isFalse();
+		assertThat(MDC.get(SqlTraceFilter.MDC_KEY)).isNull();
+	}
+
+	@Test
+	void leavesOtherThreadsAlone() throws Exception
+	{
+		SqlTraceFilter.begin("GET /digg/user/1");
+		try
+		{
+			assertThat(CompletableFuture.supplyAsync(sql::isDebugEnabled).get()).isFalse();
+		}
+		finally
+		{
+			SqlTraceFilter.end();
+		}
+	}
+}